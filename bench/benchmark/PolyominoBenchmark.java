@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import solver.DLXPolyominoSolver;
+import solver.PolyominoSolver;
+
+/**
+ * JMH benchmark of both solvers, run with: ant jmh
+ *
+ * Parameters: engine (LINKED, ARRAY and PARALLEL engines of DLXPolyominoSolver, RECURSIVE for PolyominoSolver),
+ * board size, piece set and number of pre-filled cells (taken along the main diagonal).
+ * Throughput and sampled latency (percentiles) are reported, run with -prof gc to get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolyominoBenchmark {
+
+	final static boolean[][] T4 = {{true, true, true}, {false, true, false}};
+	final static boolean[][] S4 = {{true, true, false}, {false, true, true}};
+	final static boolean[][] F5 = {{false, true, true}, {true, true, false}, {false, true, false}};
+	final static boolean[][] I5 = {{true, true, true, true, true}};
+	final static boolean[][] L5 = {{true, true, true, true}, {true, false, false, false}};
+	final static boolean[][] N5 = {{true, true, true, false}, {false, false, true, true}};
+	final static boolean[][] P5 = {{true, true, true}, {false, true, true}};
+	final static boolean[][] T5 = {{true, true, true}, {false, true, false}, {false, true, false}};
+	final static boolean[][] U5 = {{true, true, true}, {true, false, true}};
+	final static boolean[][] V5 = {{true, true, true}, {true, false, false}, {true, false, false}};
+	final static boolean[][] W5 = {{true, true, false}, {false, true, true}, {false, false, true}};
+	final static boolean[][] X5 = {{false, true, false}, {true, true, true}, {false, true, false}};
+	final static boolean[][] Y5 = {{true, true, true, true}, {false, true, false, false}};
+	final static boolean[][] Z5 = {{true, true, false}, {false, true, false}, {false, true, true}};
+
+	final static Map<String, boolean[][][]> pieceSets = Map.of(
+		"mixed", new boolean[][][] {T4, S4, F5, L5, N5, P5, T5, U5, V5, W5, X5, Y5, Z5},//PolyominoApp -benchmark piece set
+		"pentominoes", new boolean[][][] {F5, I5, L5, N5, P5, T5, U5, V5, W5, X5, Y5, Z5});
+
+	@Param({"LINKED", "ARRAY", "PARALLEL", "RECURSIVE"})
+	public String engine;
+
+	@Param({"6x10", "10x10", "10x12"})
+	public String size;
+
+	@Param({"mixed", "pentominoes"})
+	public String pieces;
+
+	@Param({"0", "5"})
+	public int prefilled;
+
+	private int rows, cols;
+	private List<boolean[][]> shapes;
+
+	@Setup
+	public void setup() {
+		String[] dims = size.split("x");
+		rows = Integer.parseInt(dims[0]);
+		cols = Integer.parseInt(dims[1]);
+		shapes = Arrays.asList(pieceSets.get(pieces));
+	}
+
+	@Benchmark
+	public boolean solve() {
+		int[][] board = new int[rows][cols];
+		for (int i = 0; i < prefilled; i++)
+			board[i % rows][i % cols] = 1;
+		if (engine.equals("RECURSIVE"))
+			return PolyominoSolver.solve(board, shapes);
+		return DLXPolyominoSolver.solve(board, shapes, DLXPolyominoSolver.Engine.valueOf(engine));
+	}
+}
@@ -0,0 +1,304 @@
+/*
+License Information, 2025 Livio (javalc6)
+
+Feel free to modify, re-use this software, please give appropriate
+credit by referencing this Github repository.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+    http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+IMPORTANT NOTICE
+Note that this software is freeware and it is not designed, licensed or
+intended for use in mission critical, life support and military purposes.
+The use of this software is at the risk of the user.
+
+DO NOT USE THIS SOFTWARE IF YOU DON'T AGREE WITH STATED CONDITIONS.
+*/
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import solver.DLXPolyominoSolver;
+import solver.PolyominoEnumerator;
+import solver.PolyominoSolver;
+import solver.PortfolioSolver;
+import solver.SolutionStore;
+import solver.SolveLimits;
+import solver.SolveResult;
+
+/**
+ * Headless batch solver: jobs are streamed from a file, solved on a pool of worker threads and the results streamed to a file.
+ *
+ * usage: java -cp classes BatchSolver jobs results [-threads n] [-timeout ms] [-engine LINKED|ARRAY|PARALLEL|RECURSIVE|PORTFOLIO] [-unordered] [-store file]
+ *
+ * Each job line holds rows, columns, pre-filled cells and piece names separated by blanks, e.g.
+ *     6 10 - F5,I5,L5,N5,P5,T5,U5,V5,W5,X5,Y5,Z5
+ *     8 8 3:3,3:4,4:3,4:4 F5,L5,N5,P5
+ * pre-filled cells are row:column pairs, - for none. Empty lines and lines starting with # are skipped.
+ * Besides the pieces of PolyominoApp, n-k names the k-th free polyomino of n cells generated by PolyominoEnumerator,
+ * as listed by PolyominoApp, e.g. 6-1 is the straight hexomino.
+ *
+ * Each result line holds the job number (its position among the jobs, from 1), the outcome, the solve time in ms
+ * and the board rows separated by / (pre-filled cells as #) or the error message:
+ *     1 SOLVED 12 1,1,2,2,2,.../...
+ * Results are written in job order, or as soon as they are ready with -unordered.
+ * With the PORTFOLIO engine each job is raced by the configurations of PortfolioSolver, the wins of each configuration are reported at the end;
+ * each job races at most processors / threads configurations, so that the racers of all the workers do not oversubscribe the processors.
+ * With -store, results are cached in a persistent SolutionStore shared by instances equal up to rotations and reflections.
+ *
+ * A reader thread parses the jobs and a writer thread writes the results, so the workers never wait on I/O;
+ * at most 4 jobs per worker are in flight, which bounds the memory used by the results waiting to be written.
+ */
+public class BatchSolver {
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    private static final int PORTFOLIO_SEEDS = 2;
+    private static final int STORE_BYTES = 64 << 20;
+    private static final int PREFILLED = 1;//solvers take any positive value as a pre-filled cell
+    private static final int MAX_GENERATED_ORDER = 12;//63600 dodecominoes
+
+    private final int threads;
+    private final long timeoutMillis;
+    private final String engine;
+    private final boolean ordered;
+    private final Map<String, boolean[][]> pieces = new HashMap<>();
+    private final Map<Integer, List<boolean[][]>> generated = new ConcurrentHashMap<>();//free polyominoes by number of cells
+    private final PortfolioSolver portfolio;
+    private SolutionStore store;
+
+    private int solved, noSolution, timedOut, errors;
+
+    public BatchSolver(int threads, long timeoutMillis, String engine, boolean ordered) {
+        this.threads = threads;
+        this.timeoutMillis = timeoutMillis;
+        this.engine = engine;
+        this.ordered = ordered;
+        for (PolyominoApp.Polyomino polyomino: PolyominoApp.allPolyominoes)
+            pieces.put(polyomino.type, polyomino.shape);
+        portfolio = engine.equals("PORTFOLIO") ? new PortfolioSolver(racers(threads)) : null;
+    }
+
+    /**
+     * The first configurations of the default portfolio, one racer per processor left to each worker thread
+     */
+    private static Map<String, PortfolioSolver.Configuration> racers(int threads) {
+        final int n = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+        final Map<String, PortfolioSolver.Configuration> racers = new LinkedHashMap<>();
+        for (Map.Entry<String, PortfolioSolver.Configuration> entry: PortfolioSolver.defaultConfigurations(PORTFOLIO_SEEDS).entrySet())
+            if (racers.size() < n) racers.put(entry.getKey(), entry.getValue());
+        return racers;
+    }
+
+    private static class Job {
+        final long number;
+        final String line;
+        Job(long number, String line) { this.number = number; this.line = line; }
+    }
+
+    private static class Result {
+        final long number;
+        final String line;
+        final SolveResult outcome;//null on error
+        Result(long number, String line, SolveResult outcome) { this.number = number; this.line = line; this.outcome = outcome; }
+    }
+
+    private static final Result END = new Result(-1, null, null);
+
+    /**
+     * Solve all the jobs read from in, writing the results to out. Returns the number of jobs.
+     */
+    public long run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "batch solver");
+            t.setDaemon(true);
+            return t;
+        });
+        final Semaphore inFlight = new Semaphore(threads * IN_FLIGHT_PER_THREAD);
+        final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        final AtomicReference<IOException> writeError = new AtomicReference<>();//set by the writer, read by this thread
+        final Thread writer = new Thread(() -> {
+            try {
+                write(results, inFlight, out);
+            } catch (IOException e) {
+                writeError.set(e);
+                inFlight.release(Integer.MAX_VALUE / 2);//unblock the reader
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "batch writer");
+        writer.start();
+
+        long n = 0;
+        try {
+            String line;
+            while ((line = in.readLine()) != null && writeError.get() == null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                final Job job = new Job(++n, line);
+                inFlight.acquire();
+                pool.execute(() -> results.add(solve(job)));
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            results.add(END);
+            writer.join();
+        }
+        if (writeError.get() != null) throw writeError.get();
+        return n;
+    }
+
+    private void write(BlockingQueue<Result> results, Semaphore inFlight, Writer out) throws IOException, InterruptedException {
+        final PriorityQueue<Result> pending = new PriorityQueue<>(Comparator.comparingLong(r -> r.number));
+        long next = 1;
+        for (Result result = results.take(); result != END; result = results.take()) {
+            count(result.outcome);
+            if (!ordered) {
+                out.write(result.line);
+                inFlight.release();
+                continue;
+            }
+            pending.add(result);
+            while (!pending.isEmpty() && pending.peek().number == next) {
+                out.write(pending.poll().line);
+                inFlight.release();
+                next++;
+            }
+        }
+        out.flush();
+    }
+
+    private synchronized void count(SolveResult outcome) {
+        if (outcome == null) errors++;
+        else switch (outcome) {
+            case SOLVED: solved++; break;
+            case NO_SOLUTION: noSolution++; break;
+            case TIMED_OUT: timedOut++; break;
+        }
+    }
+
+    private Result solve(Job job) {
+        final StringBuilder sb = new StringBuilder().append(job.number).append(' ');
+        try {
+            final String[] fields = job.line.split("\\s+");
+            if (fields.length != 4) throw new IllegalArgumentException("expected: rows columns prefilled pieces");
+            final int rows = Integer.parseInt(fields[0]), cols = Integer.parseInt(fields[1]);
+            if (rows < 1 || cols < 1) throw new IllegalArgumentException("invalid board size");
+            final int[][] board = new int[rows][cols];
+            final int prefilled = fields[2].equals("-") ? 0 : PREFILLED;//pieces are numbered from prefilled + 1
+            if (prefilled != 0)
+                for (String cell: fields[2].split(",")) {
+                    String[] rc = cell.split(":");
+                    board[Integer.parseInt(rc[0])][Integer.parseInt(rc[1])] = PREFILLED;
+                }
+            final List<boolean[][]> shapes = new ArrayList<>();
+            for (String name: fields[3].split(",")) {
+                boolean[][] shape = piece(name);
+                if (shape == null) throw new IllegalArgumentException("unknown piece " + name);
+                shapes.add(shape);
+            }
+
+            final SolveLimits limits = timeoutMillis > 0 ? SolveLimits.timeout(timeoutMillis) : null;
+            long t0 = System.nanoTime();
+            final SolveResult outcome = store != null ? store.solve(board, shapes, limits, this::solve) : solve(board, shapes, limits);
+            sb.append(outcome).append(' ').append((System.nanoTime() - t0) / 1000000);
+            if (outcome == SolveResult.SOLVED) {
+                sb.append(' ');
+                for (int r = 0; r < rows; r++) {
+                    if (r > 0) sb.append('/');
+                    for (int c = 0; c < cols; c++) {
+                        if (c > 0) sb.append(',');
+                        if (board[r][c] == prefilled) sb.append('#');
+                        else sb.append(board[r][c] - prefilled);
+                    }
+                }
+            }
+            return new Result(job.number, sb.append('\n').toString(), outcome);
+        } catch (Throwable e) {//every job must post a result, or the writer waits for it forever in job order
+            sb.setLength(0);
+            sb.append(job.number).append(" ERROR 0 ").append(e);
+            return new Result(job.number, sb.append('\n').toString(), null);
+        }
+    }
+
+    /**
+     * Shape of a piece of PolyominoApp or of a generated piece n-k, null if unknown
+     */
+    private boolean[][] piece(String name) {
+        final boolean[][] shape = pieces.get(name);
+        final String[] nk = name.split("-");
+        if (shape != null || nk.length != 2) return shape;
+        try {
+            final int n = Integer.parseInt(nk[0]), k = Integer.parseInt(nk[1]);
+            if (n < 1 || n > MAX_GENERATED_ORDER) return null;
+            final List<boolean[][]> free = generated.computeIfAbsent(n, PolyominoEnumerator::generate);
+            return k >= 1 && k <= free.size() ? free.get(k - 1) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private SolveResult solve(int[][] board, List<boolean[][]> shapes, SolveLimits limits) {
+        return engine.equals("RECURSIVE") ? PolyominoSolver.solve(board, shapes, limits)
+            : portfolio != null ? portfolio.solve(board, shapes, limits)
+            : DLXPolyominoSolver.solve(board, shapes, DLXPolyominoSolver.Engine.valueOf(engine), limits);
+    }
+
+    /**
+     * Cache the results in store, null for no cache
+     */
+    public void setStore(SolutionStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return solved + " solved, " + noSolution + " without solution, " + timedOut + " timed out, " + errors + " errors"
+            + (portfolio == null ? "" : "\n" + portfolio) + (store == null ? "" : "\n" + store);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("usage: BatchSolver jobs results [-threads n] [-timeout ms] [-engine LINKED|ARRAY|PARALLEL|RECURSIVE|PORTFOLIO] [-unordered] [-store file]");
+            System.exit(1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = 0;
+        String engine = "ARRAY";
+        boolean ordered = true;
+        String storeFile = null;
+        for (int i = 2; i < args.length; i++)
+            switch (args[i]) {
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-timeout": timeoutMillis = Long.parseLong(args[++i]); break;
+                case "-engine": engine = args[++i].toUpperCase(); break;
+                case "-unordered": ordered = false; break;
+                case "-store": storeFile = args[++i]; break;
+                default:
+                    System.err.println("unknown option " + args[i]);
+                    System.exit(1);
+            }
+        if (!engine.equals("RECURSIVE") && !engine.equals("PORTFOLIO")) DLXPolyominoSolver.Engine.valueOf(engine);//fail early on a wrong engine name
+
+        final BatchSolver batch = new BatchSolver(threads, timeoutMillis, engine, ordered);
+        long t0 = System.nanoTime();
+        long n;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+             Writer out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8);
+             SolutionStore store = storeFile == null ? null : SolutionStore.open(Paths.get(storeFile), STORE_BYTES)) {
+            batch.setStore(store);
+            n = batch.run(in, out);
+        }
+        System.out.println(n + " jobs in " + (System.nanoTime() - t0) / 1000000 + " ms: " + batch);
+    }
+}
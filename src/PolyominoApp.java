@@ -25,8 +25,14 @@ DO NOT USE THIS SOFTWARE IF YOU DON'T AGREE WITH STATED CONDITIONS.
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -34,15 +40,23 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
 
+import solver.CompositionSolver;
 import solver.DLXPolyominoSolver;
+import solver.FeasibilityCheck;
+import solver.Piece;
+import solver.PolyominoEnumerator;
 import solver.PolyominoSolver;
+import solver.SearchTap;
+import solver.SolveLimits;
+import solver.SolveResult;
 
 /**
  * Swing application to solve and visualize Polyomino tiling.
  *
- * usage: java -cp classes PolyominoApp [-benchmark]
+ * usage: java -cp classes PolyominoApp [-benchmark | -batch jobs results [options]]
  *
- * if option -benchmark is specified, headless benchmark is executed
+ * if option -benchmark is specified, headless benchmark is executed, see also the JMH benchmark run by ant jmh
+ * if option -batch is specified, jobs are solved headless by BatchSolver, see there for the options and file formats
  *
  * v1.0, 31-12-2025: PolyominoApp first release
  * v1.0.1, 14-01-2026: code refactoring and benchmark
@@ -51,10 +65,17 @@ public class PolyominoApp extends JFrame {
 
 	private final static int initial_n_rows = 6;
 	private final static int initial_n_columns = 6;
+	private final static int MAX_SIZE = 1000;
+	private final static int LARGE_BOARD_CELLS = 25 * 25;//larger boards are first composed of solved blocks
+	private final static int FRAME_RATE = 25;//of the search view
+	private final static int TAP_CAPACITY = 1 << 16;//events kept between two frames
+	private final static int MAX_GENERATED_ORDER = 8;//369 octominoes, larger sets do not fit a checklist
 
     private int[][] board;
     private final JPanel boardContainer;
     private SolverWorker currentWorker;
+    private JCheckBox watchCheckbox;
+    private BoardPanel livePanel;//board of the search being watched
 
     private static final Color[] FourColorsPalette = {
         new Color(255, 80, 80),
@@ -66,6 +87,8 @@ public class PolyominoApp extends JFrame {
     private JSpinner rowsSpinner;
     private JSpinner colsSpinner;
     private Map<String, JCheckBox> polyominoCheckboxes;
+    private final List<Polyomino> polyominoes = new ArrayList<>(Arrays.asList(allPolyominoes));//built in and generated
+    private JPanel checklist;
 
 /*
 	//domino
@@ -134,8 +157,8 @@ public class PolyominoApp extends JFrame {
 
         JPanel sizePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         sizePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        rowsSpinner = new JSpinner(new SpinnerNumberModel(initial_n_rows, 1, 25, 1));
-        colsSpinner = new JSpinner(new SpinnerNumberModel(initial_n_columns, 1, 25, 1));
+        rowsSpinner = new JSpinner(new SpinnerNumberModel(initial_n_rows, 1, MAX_SIZE, 1));
+        colsSpinner = new JSpinner(new SpinnerNumberModel(initial_n_columns, 1, MAX_SIZE, 1));
         sizePanel.add(new JLabel("R:"));
         sizePanel.add(rowsSpinner);
         sizePanel.add(new JLabel("C:"));
@@ -149,14 +172,33 @@ public class PolyominoApp extends JFrame {
         sidebar.add(selectLabel);
 
         polyominoCheckboxes = new LinkedHashMap<>();
-        for (Polyomino polyomino: allPolyominoes) {
-            JCheckBox cb = new JCheckBox(polyomino.type + " Polyomino", !disabled.contains(polyomino));
-            cb.setAlignmentX(Component.LEFT_ALIGNMENT);
-            polyominoCheckboxes.put(polyomino.type, cb);
-            sidebar.add(cb);
-        }
-
-        sidebar.add(Box.createVerticalGlue());
+        checklist = new JPanel();
+        checklist.setLayout(new BoxLayout(checklist, BoxLayout.Y_AXIS));
+        for (Polyomino polyomino: polyominoes)
+            addCheckbox(polyomino, !disabled.contains(polyomino));
+        JScrollPane checklistScroll = new JScrollPane(checklist);
+        checklistScroll.setAlignmentX(Component.LEFT_ALIGNMENT);
+        checklistScroll.setBorder(null);
+        checklistScroll.getVerticalScrollBar().setUnitIncrement(16);
+        sidebar.add(checklistScroll);
+
+        JPanel generatePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        generatePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JSpinner orderSpinner = new JSpinner(new SpinnerNumberModel(6, 1, MAX_GENERATED_ORDER, 1));
+        JButton generateBtn = new JButton("Add");
+        generateBtn.addActionListener(e -> addPolyominoes((int) orderSpinner.getValue(), generateBtn));
+        generatePanel.add(new JLabel("Cells:"));
+        generatePanel.add(orderSpinner);
+        generatePanel.add(generateBtn);
+        generatePanel.setMaximumSize(generatePanel.getPreferredSize());
+        sidebar.add(generatePanel);
+
+        sidebar.add(Box.createVerticalStrut(10));
+
+        watchCheckbox = new JCheckBox("Watch the search");
+        watchCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        sidebar.add(watchCheckbox);
+        sidebar.add(Box.createVerticalStrut(10));
 
         JButton solveBtn = new JButton("Solve Board");
         solveBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -165,15 +207,58 @@ public class PolyominoApp extends JFrame {
         sidebar.add(solveBtn);
 
 		if (init) {
-			currentWorker = new SolverWorker(initial_n_rows, initial_n_columns, getSelectedShapes(), null);
+			currentWorker = new SolverWorker(initial_n_rows, initial_n_columns, getSelectedShapes(), null, null, null);
 			currentWorker.execute();
 		}
         return sidebar;
     }
 
+    private void addCheckbox(Polyomino polyomino, boolean selected) {
+        JCheckBox cb = new JCheckBox(polyomino.type + " Polyomino", selected);
+        cb.setAlignmentX(Component.LEFT_ALIGNMENT);
+        polyominoCheckboxes.put(polyomino.type, cb);
+        checklist.add(cb);
+    }
+
+    /**
+     * Add every free polyomino of n cells to the checklist, unselected, skipping the ones already listed.
+     * The generated pieces are named n-1, n-2, ... in canonical order.
+     */
+    private void addPolyominoes(int n, JButton generateBtn) {
+        generateBtn.setEnabled(false);
+        new SwingWorker<List<boolean[][]>, Void>() {
+            @Override
+            protected List<boolean[][]> doInBackground() {
+                return PolyominoEnumerator.generate(n);
+            }
+
+            @Override
+            protected void done() {
+                generateBtn.setEnabled(true);
+                final List<boolean[][]> shapes;
+                try {
+                    shapes = get();
+                } catch (Exception e) {
+                    return;
+                }
+                final Set<Piece> listed = new HashSet<>();
+                for (Polyomino polyomino: polyominoes)
+                    listed.add(Piece.of(polyomino.shape));
+                for (int i = 0; i < shapes.size(); i++) {
+                    final Polyomino polyomino = new Polyomino(n + "-" + (i + 1), shapes.get(i));
+                    if (!listed.add(Piece.of(polyomino.shape))) continue;
+                    polyominoes.add(polyomino);
+                    addCheckbox(polyomino, false);
+                }
+                checklist.revalidate();
+                checklist.repaint();
+            }
+        }.execute();
+    }
+
 	private List<boolean[][]> getSelectedShapes() {
         final List<boolean[][]> selectedShapes = new ArrayList<>();
-        for (Polyomino polyomino: allPolyominoes)
+        for (Polyomino polyomino: polyominoes)
 			if (polyominoCheckboxes.get(polyomino.type).isSelected()) 
 				selectedShapes.add(polyomino.shape);
 		return selectedShapes;
@@ -196,36 +281,36 @@ public class PolyominoApp extends JFrame {
             return;
         }
 
-        // Check solution feasibility: 
-		// a necessary (but not sufficient) condition for the existence of an exact cover is that the board area can be computed as n1*size1 + n2*size2 + ...
-        
-        final Set<Integer> uniqueSizes = new HashSet<>();
-        for (boolean[][] shape: selectedShapes)
-            uniqueSizes.add(getPieceSize(shape));
-
-		int totalArea = r * c;
-        if (!summable(totalArea, uniqueSizes)) {
-            JOptionPane.showMessageDialog(this, 
-                "Given selected piece sizes " + uniqueSizes + " it is not possible to cover board area " + totalArea,
-                "Impossible Configuration",
-                JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
         // Setup Progress Dialog
         final JDialog waitDialog = new JDialog(this, "Solving", true);
         waitDialog.setLayout(new FlowLayout());
         final JLabel label = new JLabel("Please wait, finding solution...");
+        final JProgressBar progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
         final JButton interruptBtn = new JButton("Interrupt");
         
         waitDialog.add(label);
+        waitDialog.add(progressBar);
         waitDialog.add(interruptBtn);
-        waitDialog.setSize(250, 100);
+        waitDialog.setSize(250, 130);
         waitDialog.setLocationRelativeTo(this);
         waitDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
 
         // Background worker
-        currentWorker = new SolverWorker(r, c, selectedShapes, waitDialog);
+        final SearchTap tap = watchCheckbox.isSelected() ? new SearchTap(TAP_CAPACITY) : null;
+        currentWorker = new SolverWorker(r, c, selectedShapes, waitDialog, progressBar, tap);
+        if (tap != null) {//sample the search at a fixed frame rate, the moves in between are not drawn
+            final SolverWorker worker = currentWorker;
+            final Timer frames = new Timer(1000 / FRAME_RATE, null);
+            frames.addActionListener(e -> {
+                if (worker.isDone()) frames.stop();//the result is shown by done()
+                else {
+                    int[][] live = tap.sample();
+                    if (live != null) showLive(live);
+                }
+            });
+            frames.start();
+        }
         
         interruptBtn.addActionListener(e -> {
             if (currentWorker != null) {
@@ -238,43 +323,32 @@ public class PolyominoApp extends JFrame {
         waitDialog.setVisible(true); // Modal blocks here until dialog is disposed
     }
 
-    private static boolean summable(int targetSum, Set<Integer> Sizes) {
-        final boolean[] dp = new boolean[targetSum + 1];
-        dp[0] = true;
-        for (int Sj: Sizes) {
-            for (int i = Sj; i <= targetSum; i++)
-                if (dp[i - Sj])
-                    dp[i] = true;
-            if (dp[targetSum]) return true;
-        }
-        return dp[targetSum];
-    }
-
-    private int getPieceSize(boolean[][] shape) {
-        int count = 0;
-        for (boolean[] row: shape)
-            for (boolean cell: row)
-                if (cell) count++;
-        return count;
-    }
-
     /**
      * Background solver
      */
-    private class SolverWorker extends SwingWorker<int[][], Void> {
+    private class SolverWorker extends SwingWorker<int[][], Double> {
         private final int rows, cols;
         private final List<boolean[][]> shapes;
         private final JDialog dialog;
+        private final JProgressBar progressBar;
+        private final SearchTap tap;//null: the search is not watched
+        private String impossible;//reason why the board cannot be tiled, found before the search
 
-        public SolverWorker(int rows, int cols, List<boolean[][]> shapes, JDialog dialog) {
+        public SolverWorker(int rows, int cols, List<boolean[][]> shapes, JDialog dialog, JProgressBar progressBar, SearchTap tap) {
             this.rows = rows;
             this.cols = cols;
             this.shapes = shapes;
             this.dialog = dialog;
+            this.progressBar = progressBar;
+            this.tap = tap;
         }
 
         @Override
         protected int[][] doInBackground() {
+            // Check solution feasibility: necessary (but not sufficient) conditions for the existence of an exact cover,
+            // e.g. the board area can be computed as n1*size1 + n2*size2 + ...
+            impossible = FeasibilityCheck.refute(new int[rows][cols], shapes);
+            if (impossible != null) return null;
 			int[][] board = new int[rows][cols];
 /*take corners
 			board[0][0] = 1;
@@ -282,22 +356,36 @@ public class PolyominoApp extends JFrame {
 			board[board.length - 1][0] = 1;
 			board[board.length - 1][board[0].length - 1] = 1;
 */
-//            return PolyominoSolver.solve(board, shapes) ? board : null;// slower
-            return DLXPolyominoSolver.solve(board, shapes) ? board : null;
+//            return PolyominoSolver.solve(board, shapes, limits) == SolveResult.SOLVED ? board : null;// slower
+            if (rows * cols > LARGE_BOARD_CELLS && new CompositionSolver(shapes).solve(rows, cols, (r, cells) -> board[r] = cells))
+                return board;
+            final SolveLimits limits = new SolveLimits(0, 0, progress -> publish(progress), tap);
+            return DLXPolyominoSolver.solve(board, shapes, DLXPolyominoSolver.Engine.LINKED, limits) == SolveResult.SOLVED ? board : null;
+        }
+
+        @Override
+        protected void process(List<Double> chunks) {//estimated fraction of the search tree explored
+            if (progressBar != null)
+                progressBar.setValue((int) (chunks.get(chunks.size() - 1) * 1000));
         }
 
         @Override
         protected void done() {
             if (dialog != null && dialog.isVisible()) dialog.dispose();
+            livePanel = null;
             if (isCancelled()) return;
 
             try {
                 int[][] result = get();
-                if (result != null) {
+                if (impossible != null) {
+                    JOptionPane.showMessageDialog(PolyominoApp.this,
+                        "It is not possible to cover the board: " + impossible,
+                        "Impossible Configuration",
+                        JOptionPane.ERROR_MESSAGE);
+                } else if (result != null) {
                     board = result;
 					boardContainer.removeAll();
-                    Map<Integer, Color> idToColor = assignColors(board);
-					boardContainer.add(new BoardPanel(board, idToColor));
+					boardContainer.add(new BoardPanel(board, assignColors(board), fitCellSize(board)));
 					boardContainer.revalidate();
 					boardContainer.repaint();
                 } else {
@@ -311,141 +399,299 @@ public class PolyominoApp extends JFrame {
         }
     }
 
-    private Map<Integer, Color> assignColors(int[][] board) {
-        int rows = board.length;
-        int cols = board[0].length;
-        final Set<Integer> ids = new HashSet<>();
-        for (int[] r: board) 
-			for (int v: r) 
-				if (v > 0) ids.add(v);
+    /**
+     * Show a frame of the search being watched, reusing the panel of the previous frame
+     */
+    private void showLive(int[][] live) {
+        if (livePanel != null && livePanel.getParent() == boardContainer) livePanel.setBoard(live, assignColors(live));
+        else {
+            livePanel = new BoardPanel(live, assignColors(live), fitCellSize(live));
+            boardContainer.removeAll();
+            boardContainer.add(livePanel);
+            boardContainer.revalidate();
+            boardContainer.repaint();
+        }
+    }
 
-        final Map<Integer, Set<Integer>> adj = new HashMap<>();
-        for (int id: ids) adj.put(id, new HashSet<>());
+    /**
+     * Largest cell size, up to the default one, showing the whole board in the view
+     */
+    private int fitCellSize(int[][] board) {
+        final JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, boardContainer);
+        final Dimension extent = viewport == null ? new Dimension() : viewport.getExtentSize();
+        if (extent.width <= 10 || extent.height <= 10) return BoardPanel.CELL_SIZE;//not shown yet
+        return Math.min((extent.width - 10) / board[0].length, (extent.height - 10) / board.length);
+    }
 
-        for (int r = 0; r < rows; r++) {
+    /**
+     * Greedy coloring of the pieces with the four colors palette, neighbors in adjacency lists of primitive arrays:
+     * returns the rgb color of each piece id, gray when the four colors are taken by the neighbors
+     */
+    private static int[] assignColors(int[][] board) {
+        final int rows = board.length;
+        final int cols = board[0].length;
+        int maxId = 0;
+        for (int[] r: board)
+            for (int v: r)
+                if (v > maxId) maxId = v;
+
+        // count the borders of each piece, then fill the neighbor lists: start[id]..start[id + 1] in neighbors
+        final int[] start = new int[maxId + 2];
+        for (int r = 0; r < rows; r++)
             for (int c = 0; c < cols; c++) {
                 int id = board[r][c];
-                if (id == 0) continue;
-                int[][] neighbors = {{r + 1, c}, {r, c + 1}, {r - 1, c}, {r, c - 1}};
-                for (int[] n: neighbors) {
-                    if (n[0] >= 0 && n[0] < rows && n[1] >= 0 && n[1] < cols) {
-                        int nid = board[n[0]][n[1]];
-                        if (nid > 0 && nid != id) {
-                            adj.get(id).add(nid);
-                            adj.get(nid).add(id);
-                        }
-                    }
-                }
+                if (id <= 0) continue;
+                if (c + 1 < cols && board[r][c + 1] > 0 && board[r][c + 1] != id) { start[id]++; start[board[r][c + 1]]++; }
+                if (r + 1 < rows && board[r + 1][c] > 0 && board[r + 1][c] != id) { start[id]++; start[board[r + 1][c]]++; }
             }
+        for (int id = 0, sum = 0; id <= maxId + 1; id++) {
+            int n = start[id];
+            start[id] = sum;
+            sum += n;
         }
-
-        final Map<Integer, Color> colorMap = new HashMap<>();
-        for (int id: ids) {
-            boolean[] used = new boolean[FourColorsPalette.length];
-            for (int neighbor: adj.get(id)) {
-                if (colorMap.containsKey(neighbor)) {
-                    Color nc = colorMap.get(neighbor);
-                    for (int i = 0; i < FourColorsPalette.length; i++) 
-						if (FourColorsPalette[i].equals(nc)) used[i] = true;
-                }
-            }
-            for (int i = 0; i < FourColorsPalette.length; i++) {
-                if (!used[i]) {
-                    colorMap.put(id, FourColorsPalette[i]);
-                    break;
-                }
+        final int[] neighbors = new int[start[maxId + 1]];
+        final int[] next = Arrays.copyOf(start, maxId + 1);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++) {
+                int id = board[r][c];
+                if (id <= 0) continue;
+                if (c + 1 < cols && board[r][c + 1] > 0 && board[r][c + 1] != id) { neighbors[next[id]++] = board[r][c + 1]; neighbors[next[board[r][c + 1]]++] = id; }
+                if (r + 1 < rows && board[r + 1][c] > 0 && board[r + 1][c] != id) { neighbors[next[id]++] = board[r + 1][c]; neighbors[next[board[r + 1][c]]++] = id; }
             }
-            if (!colorMap.containsKey(id)) colorMap.put(id, Color.GRAY);
+
+        final int[] colorIndex = new int[maxId + 1];//0: not colored, else palette index + 1
+        final int[] rgb = new int[maxId + 1];
+        for (int id = 1; id <= maxId; id++) {
+            int used = 0;//bit i set if palette color i is taken by a neighbor
+            for (int k = start[id]; k < start[id + 1]; k++)
+                if (colorIndex[neighbors[k]] > 0) used |= 1 << (colorIndex[neighbors[k]] - 1);
+            int i = Integer.numberOfTrailingZeros(~used);
+            if (i < FourColorsPalette.length) {
+                colorIndex[id] = i + 1;
+                rgb[id] = FourColorsPalette[i].getRGB();
+            } else rgb[id] = Color.GRAY.getRGB();
         }
-        return colorMap;
+        return rgb;
     }
 
+    /**
+     * Board view rendered in tiles of TILE_SIZE pixels cached until the zoom changes: painting copies only the tiles
+     * intersecting the clip, so large boards pan smoothly. Level of detail: the labels and the cell grid are drawn only on
+     * large cells, the piece borders get thinner and then disappear as the cells shrink. Ctrl + mouse wheel zooms, dragging pans.
+     */
     private static class BoardPanel extends JPanel {
-        private final int[][] board;
-        private final Map<Integer, Color> idToColor;
-        private static final int CELL_SIZE = 45;
+        private static final int CELL_SIZE = 45;//largest zoom
+        private static final int TILE_SIZE = 256;
+        private static final int MAX_TILES = 128;//32 MB of tiles, 256 KB each
+        private static final int LABEL_CELL_SIZE = 20;
+        private static final int BORDER_RGB = 0xFF000000;
+        private static final Color LABEL_COLOR = new Color(0, 0, 0, 80);
+        private static final Font LABEL_FONT = new Font("SansSerif", Font.PLAIN, 10);
+
+        private int[][] board;
+        private int[] rgb, gridRgb;//color of each piece id, opaque, and of its cell grid
+        private int cellSize;
+        private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+                return size() > MAX_TILES;
+            }
+        };
+        private Point dragStart;
 
-        public BoardPanel(int[][] board, Map<Integer, Color> idToColor) {
+        public BoardPanel(int[][] board, int[] rgb, int cellSize) {
             this.board = board;
-            this.idToColor = idToColor;
-            setPreferredSize(new Dimension(board[0].length * CELL_SIZE + 10, board.length * CELL_SIZE + 10));
+            setColors(rgb);
             setBackground(Color.WHITE);
+            setZoom(Math.max(1, Math.min(CELL_SIZE, cellSize)));
+
+            final MouseAdapter mouse = new MouseAdapter() {
+                @Override
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    if (e.isControlDown()) zoom(e);
+                    else getParent().dispatchEvent(SwingUtilities.convertMouseEvent(BoardPanel.this, e, getParent()));//scroll
+                }
+
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    dragStart = e.getLocationOnScreen();
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    final JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, BoardPanel.this);
+                    if (viewport == null || dragStart == null) return;
+                    final Point p = e.getLocationOnScreen();
+                    final Point view = viewport.getViewPosition();
+                    view.translate(dragStart.x - p.x, dragStart.y - p.y);
+                    dragStart = p;
+                    scrollTo(viewport, view);
+                }
+            };
+            addMouseWheelListener(mouse);
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+        }
+
+        /**
+         * Show another board of the same size
+         */
+        void setBoard(int[][] board, int[] rgb) {
+            this.board = board;
+            setColors(rgb);
+            tiles.clear();
+            repaint();
+        }
+
+        private void setColors(int[] rgb) {
+            this.rgb = new int[rgb.length];
+            gridRgb = new int[rgb.length];
+            for (int id = 0; id < rgb.length; id++) {
+                this.rgb[id] = 0xFF000000 | rgb[id];
+                gridRgb[id] = 0xFF000000 | shade(rgb[id] >> 16 & 0xFF) << 16 | shade(rgb[id] >> 8 & 0xFF) << 8 | shade(rgb[id] & 0xFF);
+            }
+        }
+
+        private static int shade(int channel) {//the cell grid darkens the piece color as black with alpha 40
+            return channel * (255 - 40) / 255;
+        }
+
+        private void setZoom(int cellSize) {
+            this.cellSize = cellSize;
+            tiles.clear();
+            setPreferredSize(new Dimension(board[0].length * cellSize + 10, board.length * cellSize + 10));
+            revalidate();
+            repaint();
+        }
+
+        /**
+         * Zoom by one step keeping the cell under the mouse in place
+         */
+        private void zoom(MouseWheelEvent e) {
+            final int size = e.getWheelRotation() < 0 ? Math.min(CELL_SIZE, Math.max(cellSize + 1, cellSize * 5 / 4))
+                : Math.max(1, Math.min(cellSize - 1, cellSize * 4 / 5));
+            if (size == cellSize) return;
+            final JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+            final double scale = (double) size / cellSize;
+            final Point mouse = viewport == null ? null : SwingUtilities.convertPoint(this, e.getPoint(), viewport);
+            final Point anchor = new Point((int) (e.getX() * scale), (int) (e.getY() * scale));
+            setZoom(size);
+            if (viewport != null)
+                SwingUtilities.invokeLater(() -> {//after the layout of the new size
+                    final Point p = SwingUtilities.convertPoint(this, anchor, viewport.getView());
+                    scrollTo(viewport, new Point(p.x - mouse.x, p.y - mouse.y));
+                });
+        }
+
+        private static void scrollTo(JViewport viewport, Point view) {
+            final Dimension size = viewport.getViewSize(), extent = viewport.getExtentSize();
+            view.x = Math.max(0, Math.min(view.x, size.width - extent.width));
+            view.y = Math.max(0, Math.min(view.y, size.height - extent.height));
+            viewport.setViewPosition(view);
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g;
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-            for (int r = 0; r < board.length; r++) {
-                for (int c = 0; c < board[0].length; c++) {
-                    int id = board[r][c];
-                    int x = c * CELL_SIZE;
-                    int y = r * CELL_SIZE;
-
-                    if (id > 0) {
-                        g2.setColor(idToColor.get(id));
-                        g2.fillRect(x, y, CELL_SIZE, CELL_SIZE);
-                        g2.setColor(new Color(0, 0, 0, 40));
-                        g2.drawRect(x, y, CELL_SIZE, CELL_SIZE);
-                        
-                        g2.setColor(new Color(0, 0, 0, 80));
-                        g2.setFont(new Font("SansSerif", Font.PLAIN, 10));
-                        g2.drawString(String.valueOf(id), x + 4, y + 12);
-                    }
-                }
-            }
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+            final int width = board[0].length * cellSize, height = board.length * cellSize;
+            final int lastX = Math.min(clip.x + clip.width, width) - 1, lastY = Math.min(clip.y + clip.height, height) - 1;
+            for (int ty = Math.max(0, clip.y) / TILE_SIZE; ty <= lastY / TILE_SIZE && lastY >= 0; ty++)
+                for (int tx = Math.max(0, clip.x) / TILE_SIZE; tx <= lastX / TILE_SIZE && lastX >= 0; tx++)
+                    g.drawImage(tile(tx, ty), tx * TILE_SIZE, ty * TILE_SIZE, null);
+        }
 
-            g2.setStroke(new BasicStroke(3f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            g2.setColor(Color.BLACK);
-            for (int r = 0; r < board.length; r++) {
-                for (int c = 0; c < board[0].length; c++) {
-                    int id = board[r][c];
-                    if (c + 1 < board[0].length && board[r][c+1] != id) 
-                        g2.drawLine((c+1)*CELL_SIZE, r*CELL_SIZE, (c+1)*CELL_SIZE, (r+1)*CELL_SIZE);
-                    if (r + 1 < board.length && board[r+1][c] != id) 
-                        g2.drawLine(c*CELL_SIZE, (r+1)*CELL_SIZE, (c+1)*CELL_SIZE, (r+1)*CELL_SIZE);
+        /**
+         * Raster of the tile at column tx, row ty of the tile grid, the pixels outside the board are transparent
+         */
+        private BufferedImage tile(int tx, int ty) {
+            final long key = (long) tx << 32 | ty;
+            BufferedImage tile = tiles.get(key);
+            if (tile != null) return tile;
+            final int rows = board.length, cols = board[0].length;
+            final int border = cellSize >= LABEL_CELL_SIZE ? 2 : cellSize >= 6 ? 1 : 0;//each side of a piece border
+            final boolean grid = cellSize >= LABEL_CELL_SIZE;
+            final int x0 = tx * TILE_SIZE, y0 = ty * TILE_SIZE;
+            tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            final int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+            for (int py = 0; py < TILE_SIZE; py++) {
+                final int y = y0 + py, r = y / cellSize, dy = y - r * cellSize;
+                if (r >= rows) break;
+                for (int px = 0; px < TILE_SIZE; px++) {
+                    final int x = x0 + px, c = x / cellSize, dx = x - c * cellSize;
+                    if (c >= cols) break;
+                    final int id = board[r][c];
+                    final int color;
+                    if (dx < border && (c == 0 || board[r][c - 1] != id) || dx >= cellSize - border && (c + 1 == cols || board[r][c + 1] != id)
+                        || dy < border && (r == 0 || board[r - 1][c] != id) || dy >= cellSize - border && (r + 1 == rows || board[r + 1][c] != id))
+                        color = BORDER_RGB;
+                    else if (id <= 0) color = 0xFFFFFFFF;
+                    else if (grid && (dx == 0 || dy == 0)) color = gridRgb[id];
+                    else color = rgb[id];
+                    pixels[py * TILE_SIZE + px] = color;
                 }
             }
-            g2.drawRect(0, 0, board[0].length * CELL_SIZE, board.length * CELL_SIZE);
+            if (cellSize >= LABEL_CELL_SIZE) {
+                final Graphics2D g2 = tile.createGraphics();
+                g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g2.setColor(LABEL_COLOR);
+                g2.setFont(LABEL_FONT);
+                for (int r = y0 / cellSize; r < rows && r * cellSize < y0 + TILE_SIZE; r++)
+                    for (int c = x0 / cellSize; c < cols && c * cellSize < x0 + TILE_SIZE; c++)
+                        if (board[r][c] > 0) g2.drawString(String.valueOf(board[r][c]), c * cellSize - x0 + 4, r * cellSize - y0 + 12);
+                g2.dispose();
+            }
+            tiles.put(key, tile);
+            return tile;
         }
     }
 
-	private static boolean dLXPolyominoSolver(int rows, int cols) {//benchmarking adapter for DLXPolyominoSolver
+	private static List<boolean[][]> getTestShapes() {
         final List<boolean[][]> selectedShapes = new ArrayList<>();
 		final Polyomino[] testPolyominoes = {T4, S4, F5, L5, N5, P5, T5, U5, V5, W5, X5, Y5, Z5};
         for (Polyomino polyomino: testPolyominoes)
 			selectedShapes.add(polyomino.shape);
-		return DLXPolyominoSolver.solve(new int[rows][cols], selectedShapes);
+		return selectedShapes;
+	}
+
+	private static boolean dLXPolyominoSolver(int rows, int cols) {//benchmarking adapter for DLXPolyominoSolver
+		return DLXPolyominoSolver.solve(new int[rows][cols], getTestShapes());
+	}
+
+	private static boolean arrayDLXPolyominoSolver(int rows, int cols) {//benchmarking adapter for DLXPolyominoSolver with array engine
+		return DLXPolyominoSolver.solve(new int[rows][cols], getTestShapes(), DLXPolyominoSolver.Engine.ARRAY);
+	}
+
+	private static boolean parallelDLXPolyominoSolver(int rows, int cols) {//benchmarking adapter for DLXPolyominoSolver with parallel engine
+		return DLXPolyominoSolver.solve(new int[rows][cols], getTestShapes(), DLXPolyominoSolver.Engine.PARALLEL);
 	}
 
 	private static boolean polyominoSolver(int rows, int cols) {//benchmarking adapter for PolyominoSolver
-        final List<boolean[][]> selectedShapes = new ArrayList<>();
-		final Polyomino[] testPolyominoes = {T4, S4, F5, L5, N5, P5, T5, U5, V5, W5, X5, Y5, Z5};
-        for (Polyomino polyomino: testPolyominoes)
-			selectedShapes.add(polyomino.shape);
-		return PolyominoSolver.solve(new int[rows][cols], selectedShapes);
+		return PolyominoSolver.solve(new int[rows][cols], getTestShapes());
 	}
 
 	private final static int REPEAT_COUNT = 10;
 	private static void doBenchmark(BiFunction<Integer, Integer, Boolean> solver) {
-		long t0 = System.nanoTime(); long total = 0;
+		for (int rows = 4; rows < 16; rows += 2)//warmup
+			for (int cols = 4; cols < 16; cols += 2)
+				solver.apply(rows, cols);
+
+		long total = 0;
 		long max = 0; int n_runs = 0;
 		for (int k = 0; k < REPEAT_COUNT; k++) {
 			for (int rows = 4; rows < 16; rows += 2) {
 				for (int cols = 4; cols < 16; cols += 2) {
-					if (solver.apply(rows, cols)) {
-						n_runs++;
-						long t = System.nanoTime();
-						long delta = t - t0;
-						t0 = t; total += delta;
-						if (delta > max) {
-							max = delta;
-						}
-						if (n_runs % REPEAT_COUNT == 0)
-							System.out.print(".");
+					long t0 = System.nanoTime();
+					solver.apply(rows, cols);
+					long delta = System.nanoTime() - t0;
+					n_runs++;
+					total += delta;
+					if (delta > max) {
+						max = delta;
 					}
+					if (n_runs % REPEAT_COUNT == 0)
+						System.out.print(".");
 				}
 			}
 		}
@@ -454,14 +700,23 @@ public class PolyominoApp extends JFrame {
 		System.out.println("Max solver time: " + max / 1e6 + " ms");
 	}
 
-    public static void main(String[] args) {
-		if (args.length > 0 && args[0].equals("-benchmark")) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0 && args[0].equals("-batch")) {
+			BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+		} else if (args.length > 0 && args[0].equals("-benchmark")) {
 			System.out.println("Benchmarking DLXPolyominoSolver.solve()");
 			doBenchmark(PolyominoApp::dLXPolyominoSolver);
 			System.out.println("----------------------");
+			System.out.println("Benchmarking DLXPolyominoSolver.solve() with array engine");
+			doBenchmark(PolyominoApp::arrayDLXPolyominoSolver);
+			System.out.println("----------------------");
+			System.out.println("Benchmarking DLXPolyominoSolver.solve() with parallel engine");
+			doBenchmark(PolyominoApp::parallelDLXPolyominoSolver);
+			System.out.println("----------------------");
 			System.out.println("Benchmarking PolyominoSolver.solve()");
 			doBenchmark(PolyominoApp::polyominoSolver);
 			System.out.println("----------------------");
+			System.out.println(DLXPolyominoSolver.getPlacementCache());
 		} else SwingUtilities.invokeLater(() -> new PolyominoApp().setVisible(true));
     }
 }
\ No newline at end of file
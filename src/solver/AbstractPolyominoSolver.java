@@ -6,14 +6,18 @@ import java.util.*;
  */
 abstract public class AbstractPolyominoSolver {
 
+    /**
+     * The distinct fixed orientations of the shape: its rotations and their mirror images
+     */
     public static List<boolean[][]> getUniqueOrientations(boolean[][] shape) {
         final List<boolean[][]> shapes = new ArrayList<>();
         boolean[][] temp = shape;
         for (int i = 0; i < 4; i++) {
 			if (!containsShape(shapes, temp))
 				shapes.add(temp);
-			if (!containsShape(shapes, flipShape(temp)))
-				shapes.add(temp);
+			final boolean[][] flipped = flipShape(temp);
+			if (!containsShape(shapes, flipped))
+				shapes.add(flipped);
             temp = rotateShape(temp);
         }
         return shapes;
@@ -35,6 +39,14 @@ abstract public class AbstractPolyominoSolver {
         return out;
     }
 
+    public static int getPieceSize(boolean[][] shape) {
+		int count = 0;
+		for (boolean[] row: shape) 
+			for (boolean cell: row) 
+				if (cell) count++;
+		return count;
+    }
+
     public static boolean[][] flipShape(boolean[][] shape) {
         int r = shape.length, c = shape[0].length;
         boolean[][] out = new boolean[r][c];
@@ -0,0 +1,528 @@
+package solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+/**
+ * Dancing Links matrix stored in parallel int arrays instead of linked node objects.
+ * Node 0 is the root, nodes 1..n are the column headers, row nodes follow.
+ * With piece counts, columns n+1..n+m stand for the piece types: a piece used exactly once is a primary column,
+ * any other piece is a counted column kept out of the header list and covered once it has been used hi times
+ * (exact cover with multiplicities, as in Knuth's Algorithm M).
+ * The search is iterative, with an explicit stack of the chosen row nodes: its depth is not limited by the thread stack,
+ * and a serial search can save the stack to a SearchCheckpoint and resume from it.
+ */
+class ArrayDLX {
+    private int[] L, R, U, D, C, row;
+    private final int[] S;
+    private int nodes;
+    private final int[] solution;
+    private final int[] chosen, branches;//row node and branch number chosen at each depth
+    private int depth;
+    private AtomicBoolean stop;
+    private Leaf leaf;//null: stop at the first solution
+    private boolean counting;//count solutions without calling leaf
+    private long solutions;
+    SolverStats stats;//null: no statistics
+    SearchTap tap;//null: no live view, serial search only
+    private SearchBudget budget;
+    private boolean trackProgress;
+    private int ticks;
+    private SearchCheckpoint checkpoint;//null: not saved, serial search only
+    private String instance;//searched, as recorded by the checkpoint
+    private boolean stopAtNextNode;//enumeration stopped by the leaf with a checkpoint: save after the solution
+    private int cellColumns;
+    private boolean[] counted;//piece columns with multiplicity, null without piece counts
+    private int[] lo, hi, size, used;//indexed by column, piece columns only
+    private int[] required;//counted columns with lo > 0
+    private int deficit;//cells still needed by the pieces used less than lo times
+    private int remaining;//cells still to cover
+    private long random;//xorshift state breaking ties between columns of minimum size, 0: first column wins
+
+    /**
+     * Receives the row indexes of a solution, returns true to stop the search
+     */
+    interface Leaf {
+        boolean accept(int[] solution, int depth);
+    }
+
+    ArrayDLX(int n) {
+        int capacity = Math.max(16, (n + 1) * 8);
+        L = new int[capacity]; R = new int[capacity]; U = new int[capacity]; D = new int[capacity];
+        C = new int[capacity]; row = new int[capacity];
+        S = new int[n + 1];
+        solution = new int[n];
+        chosen = new int[n];
+        branches = new int[n];
+        for (int i = 0; i <= n; i++) {
+            L[i] = i == 0 ? n : i - 1;
+            R[i] = i == n ? 0 : i + 1;
+            U[i] = D[i] = C[i] = i;
+        }
+        nodes = n + 1;
+        cellColumns = n;
+    }
+
+    /**
+     * Matrix of n cell columns, freeCells of them not pre-filled, followed by a column for each piece type:
+     * piece i has sizes[i] cells and must be used between min[i] and max[i] times. Rows are added with addRow(rIdx, cells, from, to, piece).
+     */
+    ArrayDLX(int n, int freeCells, int[] min, int[] max, int[] sizes) {
+        this(n + min.length);
+        cellColumns = n;
+        counted = new boolean[S.length];
+        lo = new int[S.length]; hi = new int[S.length]; size = new int[S.length]; used = new int[S.length];
+        int n_required = 0;
+        for (int i = 0; i < min.length; i++) {
+            int c = n + 1 + i;
+            lo[c] = min[i]; hi[c] = max[i]; size[c] = sizes[i];
+            deficit += min[i] * sizes[i];
+            if (min[i] != 1 || max[i] != 1) {//not exactly once: take it out of the header list
+                counted[c] = true;
+                R[L[c]] = R[c]; L[R[c]] = L[c];
+                L[c] = R[c] = c;
+                if (min[i] > 0) n_required++;
+            }
+        }
+        required = new int[n_required];
+        for (int c = n + 1, k = 0; c < S.length; c++)
+            if (counted[c] && lo[c] > 0) required[k++] = c;
+        remaining = freeCells;
+    }
+
+    private ArrayDLX(ArrayDLX other) {
+        L = other.L.clone(); R = other.R.clone(); U = other.U.clone(); D = other.D.clone();
+        C = other.C; row = other.row;//never modified once rows are added
+        S = other.S.clone();
+        solution = other.solution.clone();
+        chosen = new int[solution.length];
+        branches = new int[solution.length];
+        nodes = other.nodes; depth = other.depth; stop = other.stop;
+        leaf = other.leaf; counting = other.counting;
+        stats = other.stats == null ? null : new SolverStats();//merged into the parent statistics by the parallel tasks
+        budget = other.budget;
+        cellColumns = other.cellColumns;
+        counted = other.counted; lo = other.lo; hi = other.hi; size = other.size; required = other.required;
+        used = other.used == null ? null : other.used.clone();
+        deficit = other.deficit; remaining = other.remaining;
+        random = other.random;
+    }
+
+    void coverColumn(int index) { cover(index + 1); }
+
+    /**
+     * Break ties in the choice of the column of minimum size at random, seed must not be 0
+     */
+    void setRandom(long seed) {
+        random = seed;
+    }
+
+    void setBudget(SearchBudget budget) {
+        this.budget = budget;
+        trackProgress = true;
+        stop = new AtomicBoolean();
+    }
+
+    /**
+     * Resume the search from the position saved by checkpoint, saving it while searching; instance identifies the matrix
+     */
+    void setCheckpoint(SearchCheckpoint checkpoint, String instance) {
+        this.checkpoint = checkpoint;
+        this.instance = instance;
+    }
+
+    int addRow(int rIdx, int[] cells, int from, int to) {//returns the first node of the row, -1 if empty
+        int first = -1;
+        for (int k = from; k < to; k++) {
+            int c = cells[k] + 1;
+            if (R[L[c]] != c) continue;
+
+            if (nodes == L.length) grow();
+            int n = nodes++;
+            row[n] = rIdx; C[n] = c; U[n] = U[c]; D[n] = c;
+            D[U[c]] = n; U[c] = n; S[c]++;
+            if (first < 0) { first = n; L[n] = R[n] = n; }
+            else { L[n] = L[first]; R[n] = first; R[L[first]] = n; L[first] = n; }
+        }
+        return first;
+    }
+
+    void addRow(int rIdx, int[] cells, int from, int to, int piece) {
+        int first = addRow(rIdx, cells, from, to);
+        int c = cellColumns + 1 + piece;
+        if (nodes == L.length) grow();
+        int n = nodes++;
+        row[n] = rIdx; C[n] = c; U[n] = U[c]; D[n] = c;
+        D[U[c]] = n; U[c] = n; S[c]++;
+        if (first < 0) L[n] = R[n] = n;
+        else { L[n] = L[first]; R[n] = first; R[L[first]] = n; L[first] = n; }
+    }
+
+    private void grow() {
+        int capacity = L.length * 2;
+        L = Arrays.copyOf(L, capacity); R = Arrays.copyOf(R, capacity);
+        U = Arrays.copyOf(U, capacity); D = Arrays.copyOf(D, capacity);
+        C = Arrays.copyOf(C, capacity); row = Arrays.copyOf(row, capacity);
+    }
+
+    List<Integer> solve() {
+        depth = 0;
+        if (!(resume() ? search(0) : R[0] == 0)) return null;//a finished checkpoint holds the solution, if any
+        final List<Integer> result = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++)
+            result.add(solution[i]);
+        return result;
+    }
+
+    /**
+     * Visit every solution, returns their number; with a checkpoint the leaf returning true pauses the enumeration,
+     * the number includes the solutions found before the position resumed
+     */
+    long enumerate(Leaf leaf) {
+        this.leaf = leaf;
+        depth = 0; solutions = 0;
+        if (resume()) search(0);
+        return solutions;
+    }
+
+    long count() {
+        counting = true;
+        depth = 0; solutions = 0;
+        if (resume()) search(0);
+        return solutions;
+    }
+
+    /**
+     * Replay the stack of choices saved by the checkpoint, if any; returns false when the saved search is finished
+     */
+    private boolean resume() {
+        if (checkpoint == null) return true;
+        for (int r: checkpoint.resume(instance)) {
+            final int c = r > 0 && r < nodes ? C[r] : 0;
+            if (c == r || c < 1 || c > cellColumns && counted != null && counted[c] || R[L[c]] != c || D[U[r]] != r) throw checkpoint.mismatch();
+            int branch = 0;
+            for (int i = D[c]; i != r; i = D[i])
+                branch++;
+            if (trackProgress && depth < SearchBudget.PROGRESS_DEPTH) budget.branch(depth, branch, S[c]);
+            cover(c);
+            chosen[depth] = r;
+            branches[depth] = branch + 1;
+            choose(r);
+            if (tap != null) tap.place(row[r]);
+        }
+        solutions = checkpoint.getSolutions();
+        return !checkpoint.isFinished();
+    }
+
+    /**
+     * Enumerate in parallel on the given pool, leaf may be called concurrently by different workers
+     */
+    long enumerateParallel(ForkJoinPool pool, Leaf leaf) {
+        this.leaf = leaf;
+        return runCount(pool);
+    }
+
+    long countParallel(ForkJoinPool pool) {
+        counting = true;
+        return runCount(pool);
+    }
+
+    private long runCount(ForkJoinPool pool) {
+        if (pool.getParallelism() < 2) {
+            depth = 0; solutions = 0;
+            search(0);
+            return solutions;
+        }
+        depth = 0;
+        if (stop == null) stop = new AtomicBoolean();
+        final ForkJoinTask<Long> task = pool.submit(new CountTask(this, pool.getParallelism() * 64));
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            stop.set(true);
+        }
+    }
+
+    /**
+     * Search in parallel on the given pool: the first branching levels are split into independent copies of the matrix,
+     * the first copy finding a cover stops all the others
+     */
+    List<Integer> solveParallel(ForkJoinPool pool) {
+        if (pool.getParallelism() < 2) return solve();
+        depth = 0;
+        if (stop == null) stop = new AtomicBoolean();
+        final ForkJoinTask<ArrayDLX> task = pool.submit(new SearchTask(this, pool.getParallelism() * 8));
+        try {
+            final ArrayDLX solved = task.get();
+            if (solved == null) return null;
+            final List<Integer> result = new ArrayList<>(solved.depth);
+            for (int i = 0; i < solved.depth; i++)
+                result.add(solved.solution[i]);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            stop.set(true);
+        }
+    }
+
+    private static class SearchTask extends RecursiveTask<ArrayDLX> {
+        private static final long serialVersionUID = 1L;
+        private final ArrayDLX dlx;
+        private final int budget;//number of subproblems wanted below this node
+
+        SearchTask(ArrayDLX dlx, int budget) {
+            this.dlx = dlx;
+            this.budget = budget;
+        }
+
+        @Override
+        protected ArrayDLX compute() {
+            if (dlx.stop.get() || dlx.pruned()) return null;
+            if (budget <= 1) {
+                if (!dlx.search(dlx.depth)) return null;
+                dlx.stop.set(true);//the first cover stops every other branch at its next node
+                return dlx;
+            }
+
+            final int[] R = dlx.R, S = dlx.S;
+            if (R[0] == 0) {
+                dlx.stop.set(true);
+                return dlx;
+            }
+            int c = R[0];
+            for (int t = R[c]; t != 0; t = R[t])
+                if (S[t] < S[c]) c = t;
+            if (dlx.stats != null) dlx.stats.node(dlx.depth, S[c]);
+            if (S[c] == 0) return null;
+
+            dlx.cover(c);
+            final List<SearchTask> tasks = new ArrayList<>(S[c]);
+            for (int r = dlx.D[c]; r != c; r = dlx.D[r]) {
+                ArrayDLX child = new ArrayDLX(dlx);
+                child.choose(r);
+                tasks.add(new SearchTask(child, budget / S[c]));
+            }
+            for (SearchTask task: tasks)
+                task.fork();
+            ArrayDLX found = null;
+            for (int i = 0; i < tasks.size(); i++) {
+                if (dlx.stop.get()) {//drop the branches not started yet, the last forked first, the others stop at their next node
+                    for (int k = tasks.size() - 1; k >= i && tasks.get(k).tryUnfork(); k--)
+                        tasks.remove(k);
+                    if (i == tasks.size()) break;
+                }
+                final SearchTask task = tasks.get(i);
+                ArrayDLX result = task.join();
+                if (dlx.stats != null) dlx.stats.add(task.dlx.stats);
+                if (found == null) found = result;
+            }
+            return found;
+        }
+    }
+
+    private static class CountTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final ArrayDLX dlx;
+        private final int budget;
+
+        CountTask(ArrayDLX dlx, int budget) {
+            this.dlx = dlx;
+            this.budget = budget;
+        }
+
+        @Override
+        protected Long compute() {
+            if (dlx.stop.get() || dlx.pruned()) return 0L;
+            if (budget <= 1) {
+                dlx.solutions = 0;
+                if (dlx.search(dlx.depth)) dlx.stop.set(true);
+                return dlx.solutions;
+            }
+
+            final int[] R = dlx.R, S = dlx.S;
+            if (R[0] == 0) {
+                dlx.solutions = 0;
+                if (dlx.search(dlx.depth)) dlx.stop.set(true);
+                return dlx.solutions;
+            }
+            int c = R[0];
+            for (int t = R[c]; t != 0; t = R[t])
+                if (S[t] < S[c]) c = t;
+            if (dlx.stats != null) dlx.stats.node(dlx.depth, S[c]);
+            if (S[c] == 0) return 0L;
+
+            dlx.cover(c);
+            final List<CountTask> tasks = new ArrayList<>(S[c]);
+            for (int r = dlx.D[c]; r != c; r = dlx.D[r]) {
+                ArrayDLX child = new ArrayDLX(dlx);
+                child.choose(r);
+                tasks.add(new CountTask(child, budget / S[c]));
+            }
+            long total = 0;
+            for (CountTask task: invokeAll(tasks)) {
+                total += task.join();
+                if (dlx.stats != null) dlx.stats.add(task.dlx.stats);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Search from the current depth up to depth base, returns true when stopped on a solution: at the first solution,
+     * or when leaf returns true. A chosen row node is the next branch of its column, the column header itself when all
+     * the branches are done.
+     */
+    private boolean search(int base) {
+        int r;
+        node:
+        while (true) {
+            if (halted()) return false;
+            r = 0;//no branch: backtrack
+            if (used == null || !pruned()) {
+                if (R[0] == 0) {
+                    if (stats != null) stats.node(depth, 0);
+                    solutions++;
+                    if (!counting && (leaf == null || leaf.accept(solution, depth))) {
+                        if (checkpoint == null) return true;
+                        if (leaf == null) {//the solution is the position saved
+                            checkpoint.save(chosen, depth, solutions - 1, true);
+                            return true;
+                        }
+                        stopAtNextNode = true;
+                    }
+                } else {
+                    int c = R[0];
+                    if (random == 0) {
+                        for (int t = R[c]; t != 0; t = R[t])
+                            if (S[t] < S[c]) c = t;
+                    } else {
+                        int ties = 1;
+                        for (int t = R[c]; t != 0; t = R[t])
+                            if (S[t] < S[c]) { c = t; ties = 1; }
+                            else if (S[t] == S[c] && nextRandom(++ties) == 0) c = t;//reservoir sampling among the ties
+                    }
+                    if (stats != null) stats.node(depth, S[c]);
+                    if (S[c] != 0) {
+                        cover(c);
+                        r = D[c];
+                        branches[depth] = 0;
+                    }
+                }
+            }
+
+            while (true) {
+                if (r != 0) {
+                    final int c = C[r];
+                    if (r != c) {
+                        if (trackProgress && depth < SearchBudget.PROGRESS_DEPTH) budget.branch(depth, branches[depth]++, S[c]);
+                        chosen[depth] = r;
+                        choose(r);
+                        if (tap != null) tap.place(row[r]);
+                        continue node;
+                    }
+                    uncover(c);
+                }
+                if (depth == base) {
+                    if (checkpoint != null) checkpoint.save(chosen, depth, solutions, true);
+                    return false;
+                }
+                r = chosen[depth - 1];
+                unchoose(r);
+                if (tap != null) tap.remove();
+                if (stats != null) stats.backtracks++;
+                r = D[r];
+            }
+        }
+    }
+
+    /**
+     * Checked before each node: true when the search must stop there, interrupted, stopped by another copy,
+     * out of budget or paused. The checkpoint, if any, is saved when due and when stopping.
+     */
+    private boolean halted() {
+        if (Thread.currentThread().isInterrupted() || (stop != null && stop.get()) || stopAtNextNode) return stopHere();
+        if ((++ticks & (SearchBudget.CHECK_INTERVAL - 1)) != 0) return false;
+        if (budget != null && budget.check()) {
+            stop.set(true);
+            return stopHere();
+        }
+        return checkpoint != null && checkpoint.isDue() && checkpoint.save(chosen, depth, solutions, false);
+    }
+
+    private boolean stopHere() {
+        if (checkpoint != null) checkpoint.save(chosen, depth, solutions, false);
+        return true;
+    }
+
+    /**
+     * Piece counts cannot be met anymore: the pieces still needed take more cells than left,
+     * or a piece used less than lo times has no placement left
+     */
+    private boolean pruned() {
+        if (deficit > remaining) return true;
+        if (required != null)
+            for (int c: required)
+                if (used[c] < lo[c] && S[c] == 0) return true;
+        return false;
+    }
+
+    private void choose(int r) {
+        solution[depth++] = row[r];
+        final int p = used == null ? 0 : pieceColumn(r);
+        if (p != 0) {
+            if (used[p]++ < lo[p]) deficit -= size[p];
+            remaining -= size[p];
+        }
+        for (int j = R[r]; j != r; j = R[j])
+            if (C[j] != p || !counted[p]) cover(C[j]);
+            else if (used[p] == hi[p]) cover(p);//no more copies of this piece
+    }
+
+    private void unchoose(int r) {
+        final int p = used == null ? 0 : pieceColumn(r);
+        for (int j = L[r]; j != r; j = L[j])
+            if (C[j] != p || !counted[p]) uncover(C[j]);
+            else if (used[p] == hi[p]) uncover(p);
+        if (p != 0) {
+            remaining += size[p];
+            if (--used[p] < lo[p]) deficit += size[p];
+        }
+        depth--;
+    }
+
+    private int pieceColumn(int r) {
+        int j = r;
+        while (C[j] <= cellColumns) j = R[j];
+        return C[j];
+    }
+
+    private int nextRandom(int bound) {
+        random ^= random << 13; random ^= random >>> 7; random ^= random << 17;
+        return (int) ((random >>> 33) % bound);
+    }
+
+    private void cover(int c) {
+        R[L[c]] = R[c]; L[R[c]] = L[c];
+        int updates = 1;
+        for (int i = D[c]; i != c; i = D[i])
+            for (int j = R[i]; j != i; j = R[j]) { U[D[j]] = U[j]; D[U[j]] = D[j]; S[C[j]]--; updates++; }
+        if (stats != null) stats.linkUpdates += updates;
+    }
+
+    private void uncover(int c) {
+        int updates = 1;
+        for (int i = U[c]; i != c; i = U[i])
+            for (int j = L[i]; j != i; j = L[j]) { S[C[j]]++; U[D[j]] = j; D[U[j]] = j; updates++; }
+        R[L[c]] = c; L[R[c]] = c;
+        if (stats != null) stats.linkUpdates += updates;
+    }
+}
@@ -0,0 +1,259 @@
+package solver;
+
+import java.util.*;
+/**
+ * Tiling of very large empty rectangles composed of small solved blocks: the board is cut into strips of whole rows
+ * (or whole columns) and every strip into blocks of at most maxBlock x maxBlock cells, using only block sizes that the
+ * DLX solver can tile. The blocks are solved once and cached, the board is produced row by row in time linear in its area
+ * and never held in memory, only one row at a time.
+ * A block is also used transposed, which mirrors its pieces: the solvers place the mirror images of every piece too.
+ *
+ * The blocks are shared by all the solvers of the same piece set, tiled or not: a block not tiled within its timeout is
+ * not tried again. One solve gives all its blocks timeoutMillis in total, the blocks it has no time left for are not cached.
+ */
+public class CompositionSolver {
+    private static final int[][] NONE = new int[0][];
+    private static final int CACHED_PIECE_SETS = 16;
+    private static final Map<String, Map<Integer, int[][]>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<Integer, int[][]>> eldest) {
+            return size() > CACHED_PIECE_SETS;
+        }
+    };
+
+    private final List<boolean[][]> polyominoTypes;
+    private final int maxBlock;
+    private final long blockTimeoutMillis, timeoutMillis;
+    private final int gcd;//of the piece sizes, every block area is a multiple of it
+    private final Map<Integer, int[][]> blocks;//of the piece set, key(h, w) -> tiling labelled from 1, or NONE; guarded by itself
+
+    /**
+     * Receives row r of the board, the cells hold piece numbers from 1
+     */
+    public interface RowConsumer {
+        void accept(int r, int[] cells);
+    }
+
+    public CompositionSolver(List<boolean[][]> polyominoTypes) {
+        this(polyominoTypes, 12, 1000, 10000);
+    }
+
+    /**
+     * Blocks are at most maxBlock x maxBlock, each block is given blockTimeoutMillis to be solved
+     * and all the blocks of one solve timeoutMillis
+     */
+    public CompositionSolver(List<boolean[][]> polyominoTypes, int maxBlock, long blockTimeoutMillis, long timeoutMillis) {
+        this.polyominoTypes = new ArrayList<>(polyominoTypes);
+        this.maxBlock = maxBlock;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.timeoutMillis = timeoutMillis;
+        int g = 0;
+        for (boolean[][] shape: polyominoTypes)
+            g = gcd(g, AbstractPolyominoSolver.getPieceSize(shape));
+        gcd = g;
+        final TreeSet<String> codes = new TreeSet<>();//canonical piece set
+        for (Piece piece: Piece.compile(polyominoTypes))
+            codes.add(piece.code);
+        final StringBuilder key = new StringBuilder();
+        for (String code: codes)
+            key.append(':').append(code);
+        synchronized (cache) {
+            blocks = cache.computeIfAbsent(key.toString(), k -> new HashMap<>());
+        }
+    }
+
+    /**
+     * Tile the empty rows x cols board passing its rows in order to consumer, each row in a new array.
+     * Returns false, without calling consumer, if the board cannot be composed of the available blocks.
+     */
+    public boolean solve(int rows, int cols, RowConsumer consumer) {
+        final long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        final Map<Integer, int[][]> tilings = new HashMap<>();//of the blocks validated by the plan, the shared blocks may change meanwhile
+        int[][] plan = plan(rows, cols, deadline, tilings);
+        if (plan != null) {
+            streamStrips(plan, cols, tilings, consumer);
+            return true;
+        }
+        plan = plan(cols, rows, deadline, tilings);//strips of whole columns
+        if (plan == null) return false;
+        streamColumnStrips(plan, cols, tilings, consumer);
+        return true;
+    }
+
+    /**
+     * Composition of a length x width board: plan[0] the strip sizes along length, plan[1 + s] the block sizes along
+     * width of strip s; null if not possible. The tiling of every stripSize x blockSize block found is put in tilings.
+     */
+    private int[][] plan(int length, int width, long deadline, Map<Integer, int[][]> tilings) {
+        final List<Integer> stripSizes = new ArrayList<>();
+        final Map<Integer, int[]> splits = new HashMap<>();
+        for (int h = 1; h <= Math.min(maxBlock, length); h++) {
+            int[] split = split(width, sizes(h, deadline, tilings));
+            if (split != null) {
+                stripSizes.add(h);
+                splits.put(h, split);
+            }
+        }
+        final int[] strips = split(length, stripSizes.stream().mapToInt(Integer::intValue).toArray());
+        if (strips == null) return null;
+        final int[][] plan = new int[1 + strips.length][];
+        plan[0] = strips;
+        for (int s = 0; s < strips.length; s++)
+            plan[1 + s] = splits.get(strips[s]);
+        return plan;
+    }
+
+    /**
+     * Block sizes w such that an h x w block can be tiled
+     */
+    private int[] sizes(int h, long deadline, Map<Integer, int[][]> tilings) {
+        final int[] sizes = new int[maxBlock];
+        int n = 0;
+        for (int w = 1; w <= maxBlock; w++) {
+            final int[][] block = block(h, w, deadline);
+            if (block == NONE) continue;
+            tilings.put(key(h, w), block);
+            sizes[n++] = w;
+        }
+        return Arrays.copyOf(sizes, n);
+    }
+
+    /**
+     * Split total into a sum of the given sizes, by dynamic programming on the reachable totals; null if not possible
+     */
+    private static int[] split(int total, int[] sizes) {
+        if (sizes.length == 0) return null;
+        final int[] last = new int[total + 1];//size used to reach t, 0 if unreachable
+        last[0] = -1;
+        for (int t = 1; t <= total; t++)
+            for (int size: sizes)
+                if (size <= t && last[t - size] != 0) {
+                    last[t] = size;
+                    break;
+                }
+        if (last[total] == 0) return null;
+        int n = 0;
+        for (int t = total; t > 0; t -= last[t])
+            n++;
+        final int[] split = new int[n];
+        for (int t = total, i = 0; t > 0; t -= last[t])
+            split[i++] = last[t];
+        return split;
+    }
+
+    private static void streamStrips(int[][] plan, int cols, Map<Integer, int[][]> tilings, RowConsumer consumer) {
+        int r = 0, offset = 0;
+        for (int s = 0; s < plan[0].length; s++) {
+            final int h = plan[0][s];
+            final int[] widths = plan[1 + s];
+            final int[][][] strip = new int[widths.length][][];
+            final int[] offsets = new int[widths.length];
+            for (int k = 0; k < widths.length; k++) {
+                strip[k] = tilings.get(key(h, widths[k]));
+                offsets[k] = offset;
+                offset += pieceCount(strip[k]);
+            }
+            for (int i = 0; i < h; i++) {
+                final int[] row = new int[cols];
+                for (int k = 0, c = 0; k < widths.length; c += widths[k++])
+                    for (int j = 0; j < widths[k]; j++)
+                        row[c + j] = offsets[k] + strip[k][i][j];
+                consumer.accept(r++, row);
+            }
+        }
+    }
+
+    /**
+     * The plan of the transposed board: its w x h blocks are streamed transposed
+     */
+    private static void streamColumnStrips(int[][] plan, int cols, Map<Integer, int[][]> tilings, RowConsumer consumer) {
+        final Map<Integer, int[][]> transposed = new HashMap<>();
+        for (Map.Entry<Integer, int[][]> entry: tilings.entrySet())
+            transposed.put(key(entry.getKey() & 0xffff, entry.getKey() >>> 16), transpose(entry.getValue()));
+        final int strips = plan[0].length;
+        final int[] block = new int[strips], rowInBlock = new int[strips], offset = new int[strips];
+        for (int s = 1; s < strips; s++) {
+            offset[s] = offset[s - 1];
+            for (int h: plan[s])
+                offset[s] += pieceCount(transposed.get(key(h, plan[0][s - 1])));
+        }
+        for (int r = 0; ; r++) {
+            final int[] row = new int[cols];
+            int c = 0;
+            for (int s = 0; s < strips; s++) {
+                final int w = plan[0][s];
+                if (block[s] == plan[1 + s].length) return;//all strips end on the last row
+                final int h = plan[1 + s][block[s]];
+                final int[][] tiling = transposed.get(key(h, w));
+                final int[] cells = tiling[rowInBlock[s]];
+                for (int j = 0; j < w; j++)
+                    row[c + j] = offset[s] + cells[j];
+                c += w;
+                if (++rowInBlock[s] == h) {
+                    rowInBlock[s] = 0;
+                    block[s]++;
+                    offset[s] += pieceCount(tiling);
+                }
+            }
+            consumer.accept(r, row);
+        }
+    }
+
+    private static int pieceCount(int[][] block) {
+        int max = 0;
+        for (int[] row: block)
+            for (int label: row)
+                max = Math.max(max, label);
+        return max;
+    }
+
+    /**
+     * Tiling of the h x w block with pieces numbered from 1 in order of first appearance, NONE if not found in time
+     */
+    private int[][] block(int h, int w, long deadline) {
+        synchronized (blocks) {//the solvers of the same pieces wait for the block rather than solve it again
+            int[][] block = blocks.get(key(h, w));
+            if (block != null) return block;
+            final int[][] transposed = blocks.get(key(w, h));
+            if (transposed != null) block = transposed == NONE ? NONE : transpose(transposed);
+            else if (gcd == 0 || h * w % gcd != 0) block = NONE;
+            else {
+                final long left = (deadline - System.nanoTime()) / 1_000_000;
+                if (left <= 0) return NONE;
+                final int[][] board = new int[h][w];
+                final SolveResult result = DLXPolyominoSolver.solve(board, polyominoTypes, DLXPolyominoSolver.Engine.ARRAY,
+                    SolveLimits.timeout(Math.min(left, blockTimeoutMillis)));
+                if (result == SolveResult.TIMED_OUT && (left < blockTimeoutMillis || Thread.currentThread().isInterrupted()))
+                    return NONE;//cut short by the deadline of this solve or cancelled
+                block = result == SolveResult.SOLVED ? relabel(board) : NONE;
+            }
+            blocks.put(key(h, w), block);
+            return block;
+        }
+    }
+
+    private static int key(int h, int w) {
+        return h << 16 | w;
+    }
+
+    private static int[][] relabel(int[][] board) {
+        final Map<Integer, Integer> labels = new HashMap<>();
+        final int[][] block = new int[board.length][board[0].length];
+        for (int r = 0; r < board.length; r++)
+            for (int c = 0; c < board[0].length; c++)
+                block[r][c] = labels.computeIfAbsent(board[r][c], v -> labels.size() + 1);
+        return block;
+    }
+
+    private static int[][] transpose(int[][] block) {
+        final int[][] t = new int[block[0].length][block.length];
+        for (int r = 0; r < block.length; r++)
+            for (int c = 0; c < block[0].length; c++)
+                t[c][r] = block[r][c];
+        return relabel(t);
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -1,70 +1,464 @@
 package solver;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
 /**
  * Polyominoes Solver based on Donald Knuth's Dancing Links (DLX) algorithm
  */
 public class DLXPolyominoSolver extends AbstractPolyominoSolver {
+
+    /**
+     * Dancing Links implementation: LINKED uses node objects, ARRAY keeps the matrix in parallel int arrays,
+     * PARALLEL runs the array engine on the common ForkJoinPool
+     */
+    public enum Engine { LINKED, ARRAY, PARALLEL }
+
+    private static final PlacementCache placementCache = new PlacementCache(64);
+
+    /**
+     * Cache of the placement tables built by the solver, shared by all solves
+     */
+    public static PlacementCache getPlacementCache() {
+        return placementCache;
+    }
+
     public static boolean solve(int[][] board, List<boolean[][]> polyominoTypes) {
+        return solve(board, polyominoTypes, Engine.LINKED);
+    }
+
+    public static boolean solve(int[][] board, List<boolean[][]> polyominoTypes, Engine engine) {
+        return solve(board, polyominoTypes, engine, (SolverStats) null);
+    }
+
+    /**
+     * Solve collecting search statistics in stats, if not null
+     */
+    public static boolean solve(int[][] board, List<boolean[][]> polyominoTypes, Engine engine, SolverStats stats) {
+        return solve(board, polyominoTypes, engine, null, stats) == SolveResult.SOLVED;
+    }
+
+    /**
+     * Solve within the time and node budget given by limits, no limits if null
+     */
+    public static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, Engine engine, SolveLimits limits) {
+        return solve(board, polyominoTypes, engine, limits, null);
+    }
+
+    /**
+     * Solve within the time and node budget given by limits, no limits if null, collecting search statistics in stats, if not null
+     */
+    public static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, Engine engine, SolveLimits limits, SolverStats stats) {
+        return solve(board, Piece.compile(polyominoTypes), null, engine, limits, stats);
+    }
+
+    /**
+     * Solve with pieces compiled once by the caller, within the time and node budget given by limits, no limits if null
+     */
+    public static SolveResult solve(int[][] board, Piece[] pieces, Engine engine, SolveLimits limits) {
+        return solve(board, pieces, null, engine, limits, null);
+    }
+
+    /**
+     * Solve with the array engine restarting on the node limit schedule of restarts, with a different random branch order
+     * at each restart, within the budget given by limits, no limits if null
+     */
+    public static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, RestartStrategy restarts, SolveLimits limits) {
+        return restarts.run(limits, (attemptLimits, seed) -> seed == 0 ? solve(board, polyominoTypes, Engine.ARRAY, attemptLimits)
+            : solve(board, polyominoTypes, attemptLimits, seed));
+    }
+
+    /**
+     * Solve using each piece type the number of times allowed by counts, e.g. PieceCounts.once(12) with the 12 pentominoes
+     */
+    public static boolean solve(int[][] board, List<boolean[][]> polyominoTypes, PieceCounts counts) {
+        return solve(board, polyominoTypes, counts, null) == SolveResult.SOLVED;
+    }
+
+    /**
+     * Solve using each piece type the number of times allowed by counts, within the budget given by limits, no limits if null.
+     * Piece counts are handled by the array engine: pieces used exactly once become primary columns, the other pieces
+     * counted columns, so impossible piece budgets are pruned during the search.
+     */
+    public static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, PieceCounts counts, SolveLimits limits) {
+        return solve(board, Piece.compile(polyominoTypes), counts, Engine.ARRAY, limits, null);
+    }
+
+    /**
+     * Solve with the array engine, adding the placements in an order shuffled by seed and breaking ties between columns
+     * at random: the search explores the branches in a different order for each seed, used by the portfolio and restart strategies
+     */
+    static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, SolveLimits limits, long seed) {
+        return solve(board, Piece.compile(polyominoTypes), null, Engine.ARRAY, limits, null, new Random(seed));
+    }
+
+    private static SolveResult solve(int[][] board, Piece[] pieces, PieceCounts counts, Engine engine, SolveLimits limits, SolverStats stats) {
+        return solve(board, pieces, counts, engine, limits, stats, null);
+    }
+
+    private static SolveResult solve(int[][] board, Piece[] pieces, PieceCounts counts, Engine engine, SolveLimits limits, SolverStats stats, Random random) {
+        if (counts != null && engine == Engine.LINKED) engine = Engine.ARRAY;
+        final SearchBudget budget = limits == null ? null : new SearchBudget(limits);
+        final SolveEvent event = new SolveEvent();
+        if (stats == null && event.isEnabled()) stats = new SolverStats();
+        event.begin();
+        long t0 = stats == null ? 0 : System.nanoTime();
+		int order = nextOrder(board);
+		int cols = board[0].length;
+        final SearchCheckpoint checkpoint = engine == Engine.ARRAY && random == null && limits != null ? limits.checkpoint : null;
+        final PlacementTable table = checkpoint != null && counts == null ? PlacementCache.build(board.length, cols, pieces)//numbered as the saved choices, whatever is cached
+            : getPlacements(board, pieces, counts);
+
+        final List<Integer> solution;
+        if (counts == null && FeasibilityCheck.refute(board, table) != null) {//refuted without search
+            solution = null;
+            if (checkpoint != null) {
+                checkpoint.resume(SearchCheckpoint.instance("DLX solve", board, pieces, null));
+                checkpoint.save(new int[0], 0, 0, true);
+            }
+        } else if (engine != Engine.LINKED) {
+            ArrayDLX solver = buildArrayDLX(board, table, counts, random);
+            solver.stats = stats;
+            if (budget != null) solver.setBudget(budget);
+            if (random != null) solver.setRandom(random.nextLong() | 1);
+            if (engine == Engine.ARRAY) solver.tap = startTap(limits, board, table);
+            if (checkpoint != null) solver.setCheckpoint(checkpoint, SearchCheckpoint.instance("DLX solve", board, pieces, counts));
+            if (stats != null) t0 = setupDone(stats, t0);
+            solution = engine == Engine.PARALLEL ? solver.solveParallel(ForkJoinPool.commonPool()) : solver.solve();
+        } else {
+            DLX solver = new DLX(board.length * cols);
+            for (int r = 0; r < board.length; r++)
+                for (int c = 0; c < cols; c++)
+                    if (board[r][c] != 0)
+                        solver.coverColumn(r * cols + c);
+            final boolean[] usable = table.usable(board);
+            for (int i = 0; i < usable.length; i++)
+                if (usable[i])
+                    solver.addRow(i, table.cells, table.offsets[i], table.offsets[i + 1]);
+            solver.stats = stats;
+            solver.budget = budget;
+            solver.tap = startTap(limits, board, table);
+            if (stats != null) t0 = setupDone(stats, t0);
+            solution = solver.solve();
+        }
+        if (limits != null && limits.tap != null && engine != Engine.PARALLEL) limits.tap.finish();
+        final SolveResult result = solution != null ? SolveResult.SOLVED
+            : budget != null && budget.isExhausted() || Thread.currentThread().isInterrupted() || checkpoint != null && checkpoint.isPaused() ? SolveResult.TIMED_OUT
+            : SolveResult.NO_SOLUTION;
+        if (budget != null && result != SolveResult.TIMED_OUT) budget.done();
+        if (stats != null) {
+            stats.searchNanos += System.nanoTime() - t0;
+            event.commit(engine.name(), board, solution != null, stats);
+        }
+        if (solution == null) return result;
+
+        for (int idx: solution) {
+            for (int k = table.offsets[idx]; k < table.offsets[idx + 1]; k++)
+                board[table.cells[k] / cols][table.cells[k] % cols] = order;
+            order++;
+        }
+        return result;
+    }
+
+    /**
+     * Visit every exact cover of the board. The board is filled in place before each visit and restored afterwards,
+     * the visitor must copy it to keep a solution. Returns the number of visited solutions.
+     */
+    public static long enumerate(int[][] board, List<boolean[][]> polyominoTypes, SolutionVisitor visitor) {
+		final int order = nextOrder(board);
+        final PlacementTable table = getPlacements(board, polyominoTypes);
+        return buildArrayDLX(board, table).enumerate(visitInPlace(board, table, order, visitor));
+    }
+
+    /**
+     * Visit every exact cover of the board, subtrees are searched in parallel on the given pool.
+     * Each visit gets a fresh copy of the board, the visitor may be called concurrently and must be thread-safe.
+     * Returns the number of visited solutions.
+     */
+    public static long enumerate(int[][] board, List<boolean[][]> polyominoTypes, SolutionVisitor visitor, ForkJoinPool pool) {
+		final int order = nextOrder(board);
+        final PlacementTable table = getPlacements(board, polyominoTypes);
+        return buildArrayDLX(board, table).enumerateParallel(pool, (solution, depth) -> {
+            int[][] copy = new int[board.length][];
+            for (int r = 0; r < board.length; r++)
+                copy[r] = board[r].clone();
+            fill(copy, table, solution, depth, order);
+            return !visitor.visit(copy);
+        });
+    }
+
+    /**
+     * Visit every tiling of the board using each piece type the number of times allowed by counts,
+     * the board is filled in place as in enumerate(board, polyominoTypes, visitor)
+     */
+    public static long enumerate(int[][] board, List<boolean[][]> polyominoTypes, PieceCounts counts, SolutionVisitor visitor) {
+		final int order = nextOrder(board);
+        final PlacementTable table = getPlacements(board, Piece.compile(polyominoTypes), counts);
+        return buildArrayDLX(board, table, counts).enumerate(visitInPlace(board, table, order, visitor));
+    }
+
+    /**
+     * Visit every tiling of the board with the array engine, resuming from the position saved by checkpoint and saving it
+     * while searching, so the enumeration survives a restart of the JVM: counts, if not null, limits the uses of each
+     * piece type, a null visitor just counts the tilings. The board is filled in place as in enumerate(board, polyominoTypes, visitor).
+     * The enumeration stops, saving its position, when the thread is interrupted, when checkpoint.pause() is called
+     * and after a solution the visitor returns false for. Returns the number of tilings found from the start of the
+     * enumeration, also in the runs before, all the tilings when checkpoint.isFinished().
+     */
+    public static long enumerate(int[][] board, List<boolean[][]> polyominoTypes, PieceCounts counts, SolutionVisitor visitor, SearchCheckpoint checkpoint) {
+		final int order = nextOrder(board);
+        final Piece[] pieces = Piece.compile(polyominoTypes);
+        final PlacementTable table = counts == null ? PlacementCache.build(board.length, board[0].length, pieces)//numbered as the saved choices, whatever is cached
+            : getPlacements(board, pieces, counts);
+        final ArrayDLX solver = buildArrayDLX(board, table, counts);
+        solver.setCheckpoint(checkpoint, SearchCheckpoint.instance("DLX enumerate", board, pieces, counts));
+        return visitor == null ? solver.count() : solver.enumerate(visitInPlace(board, table, order, visitor));
+    }
+
+    /**
+     * Count exact covers of the board without building solution boards
+     */
+    public static long count(int[][] board, List<boolean[][]> polyominoTypes) {
+        return buildArrayDLX(board, getPlacements(board, polyominoTypes)).count();
+    }
+
+    /**
+     * Count exact covers of the board with pieces compiled once by the caller
+     */
+    public static long count(int[][] board, Piece[] pieces) {
+        return buildArrayDLX(board, getPlacements(board, pieces)).count();
+    }
+
+    /**
+     * Count exact covers of the board, subtrees are searched in parallel on the given pool
+     */
+    public static long count(int[][] board, List<boolean[][]> polyominoTypes, ForkJoinPool pool) {
+        return buildArrayDLX(board, getPlacements(board, polyominoTypes)).countParallel(pool);
+    }
+
+    /**
+     * Count the tilings of the board using each piece type the number of times allowed by counts,
+     * subtrees are searched in parallel on the pool if not null
+     */
+    public static long count(int[][] board, List<boolean[][]> polyominoTypes, PieceCounts counts, ForkJoinPool pool) {
+        final ArrayDLX solver = buildArrayDLX(board, getPlacements(board, Piece.compile(polyominoTypes), counts), counts);
+        return pool == null ? solver.count() : solver.countParallel(pool);
+    }
+
+    /**
+     * Stream of all exact covers of the board, produced in background on the given pool and handed over through a queue
+     * holding at most queueCapacity solutions, so a slow consumer suspends the search. Closing the stream stops the search.
+     */
+    public static Stream<int[][]> stream(int[][] board, List<boolean[][]> polyominoTypes, int queueCapacity, ForkJoinPool pool) {
+        final SolutionQueue queue = new SolutionQueue(queueCapacity);
+        final Thread producer = new Thread(() -> {
+            try {
+                enumerate(board, polyominoTypes, queue::put, pool);
+            } finally {
+                queue.finish();
+            }
+        }, "DLX solutions producer");
+        producer.setDaemon(true);
+        producer.start();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(queue, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(queue::close);
+    }
+
+    /**
+     * Count the tilings of the board visiting just one tiling for each class of tilings equivalent under
+     * the board rotations and reflections, branches are searched on the pool if not null
+     */
+    public static TilingCount countUnique(int[][] board, List<boolean[][]> polyominoTypes, ForkJoinPool pool) {
+        return enumerateUnique(board, polyominoTypes, null, pool);
+    }
+
+    /**
+     * Visit one tiling for each class of tilings equivalent under the board rotations and reflections.
+     * Each visit gets a fresh board, with a pool the visitor may be called concurrently and must be thread-safe.
+     */
+    public static TilingCount enumerateUnique(int[][] board, List<boolean[][]> polyominoTypes, SolutionVisitor visitor, ForkJoinPool pool) {
+		final int order = nextOrder(board);
+        final PlacementTable table = getPlacements(board, polyominoTypes);
+        final SymmetryBreaking symmetryBreaking = new SymmetryBreaking(board, table);
+        final long[] count = symmetryBreaking.enumerate(visitor == null ? null : placementIds -> {
+            int[][] copy = new int[board.length][];
+            for (int r = 0; r < board.length; r++)
+                copy[r] = board[r].clone();
+            fill(copy, table, placementIds, placementIds.length, order);
+            return !visitor.visit(copy);
+        }, pool);
+        return new TilingCount(count[0], count[1], symmetryBreaking.symmetries());
+    }
+
+    private static class SolutionQueue implements Iterator<int[][]> {
+        private static final int[][] END = new int[0][];
+        private final BlockingQueue<int[][]> queue;
+        private volatile boolean closed;
+        private int[][] next;
+
+        SolutionQueue(int capacity) {
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        boolean put(int[][] solution) {//called by the producers, blocks while the queue is full
+            try {
+                while (!closed)
+                    if (queue.offer(solution, 100, TimeUnit.MILLISECONDS))
+                        return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        void finish() {
+            try {
+                while (!closed && !queue.offer(END, 100, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                if (closed) return false;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    return false;
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        public int[][] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int[][] result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * Tap of limits started on the board, placements are the rows of table; null without tap
+     */
+    private static SearchTap startTap(SolveLimits limits, int[][] board, PlacementTable table) {
+        if (limits == null || limits.tap == null) return null;
+        limits.tap.start(board.length, board[0].length, (placement, out) -> {
+            final int from = table.offsets[placement], n = table.offsets[placement + 1] - from;
+            if (n <= out.length) System.arraycopy(table.cells, from, out, 0, n);
+            return n;
+        });
+        return limits.tap;
+    }
+
+    private static long setupDone(SolverStats stats, long t0) {
+        long t = System.nanoTime();
+        stats.setupNanos += t - t0;
+        return t;
+    }
+
+    private static int nextOrder(int[][] board) {
 		int order = 1;
 		for (int[] row: board) 
 			for (int cell: row) {
 				if (cell >= order) order = cell + 1;
 			}
+		return order;
+    }
 
-		int rows = board.length, cols = board[0].length;
-        int totalCells = rows * cols;
-        final List<Placement> allOrientations = new ArrayList<>();
-
-        for (int i = 0; i < polyominoTypes.size(); i++) {
-            List<boolean[][]> orientations = getUniqueOrientations(polyominoTypes.get(i));
-            for (boolean[][] shape: orientations) {
-                for (int r = 0; r <= rows - shape.length; r++) {
-                    for (int c = 0; c <= cols - shape[0].length; c++) {
-                        List<Integer> cells = new ArrayList<>();
-                        boolean isValid = true;                        
-                        for (int dr = 0; dr < shape.length; dr++) {
-                            for (int dc = 0; dc < shape[0].length; dc++) {
-                                if (shape[dr][dc]) {
-                                    if (board[r + dr][c + dc] != 0) {
-                                        isValid = false;
-                                        break;
-                                    }
-                                    cells.add((r + dr) * cols + (c + dc));
-                                }
-                            }
-                            if (!isValid) break;
-                        }                       
-                        if (isValid)
-                            allOrientations.add(new Placement(cells));
-                    }
-                }
-            }
+    /**
+     * Leaf filling the board in place for the visitor and restoring it afterwards
+     */
+    private static ArrayDLX.Leaf visitInPlace(int[][] board, PlacementTable table, int order, SolutionVisitor visitor) {
+        return (solution, depth) -> {
+            fill(board, table, solution, depth, order);
+            boolean more = visitor.visit(board);
+            for (int i = 0; i < depth; i++)
+                for (int k = table.offsets[solution[i]]; k < table.offsets[solution[i] + 1]; k++)
+                    board[table.cells[k] / table.cols][table.cells[k] % table.cols] = 0;
+            return !more;
+        };
+    }
+
+    private static void fill(int[][] board, PlacementTable table, int[] solution, int depth, int order) {
+        for (int i = 0; i < depth; i++) {
+            for (int k = table.offsets[solution[i]]; k < table.offsets[solution[i] + 1]; k++)
+                board[table.cells[k] / table.cols][table.cells[k] % table.cols] = order;
+            order++;
         }
+    }
+
+    static PlacementTable getPlacements(int[][] board, List<boolean[][]> polyominoTypes) {
+        return getPlacements(board, Piece.compile(polyominoTypes));
+    }
+
+    static PlacementTable getPlacements(int[][] board, Piece[] pieces) {
+        return placementCache.get(board.length, board[0].length, pieces);
+    }
+
+    /**
+     * Placements keep track of their piece type when counts are given, these tables are not cached
+     */
+    private static PlacementTable getPlacements(int[][] board, Piece[] pieces, PieceCounts counts) {
+        if (counts == null) return getPlacements(board, pieces);
+        if (counts.size() != pieces.length) throw new IllegalArgumentException("piece counts do not match the piece types");
+        final boolean[] included = new boolean[counts.size()];
+        for (int i = 0; i < included.length; i++)
+            included[i] = counts.max[i] > 0;
+        return PlacementTable.buildPerPiece(board.length, board[0].length, pieces, included);
+    }
 
-        DLX solver = new DLX(totalCells);
+    private static ArrayDLX buildArrayDLX(int[][] board, PlacementTable table) {
+        return buildArrayDLX(board, table, null);
+    }
+
+    private static ArrayDLX buildArrayDLX(int[][] board, PlacementTable table, PieceCounts counts) {
+        return buildArrayDLX(board, table, counts, null);
+    }
+
+    private static ArrayDLX buildArrayDLX(int[][] board, PlacementTable table, PieceCounts counts, Random random) {
+		int rows = board.length, cols = board[0].length;
+        ArrayDLX solver;
+        if (counts == null) solver = new ArrayDLX(rows * cols);
+        else {
+            int free = 0;
+            for (int[] row: board)
+                for (int cell: row)
+                    if (cell == 0) free++;
+            final int[] sizes = new int[counts.size()];
+            for (int i = 0; i < table.size(); i++)
+                sizes[table.pieces[i]] = table.offsets[i + 1] - table.offsets[i];
+            solver = new ArrayDLX(rows * cols, free, counts.min, counts.max, sizes);
+        }
         for (int r = 0; r < rows; r++)
             for (int c = 0; c < cols; c++)
                 if (board[r][c] != 0)
                     solver.coverColumn(r * cols + c);
-        for (int i = 0; i < allOrientations.size(); i++)
-            solver.addRow(i, allOrientations.get(i).cells);
-        final List<Integer> solution = solver.solve();
-        if (solution == null) return false;
-
-        for (int idx: solution) {
-            for (int cell: allOrientations.get(idx).cells)
-                board[cell / cols][cell % cols] = order;
-            order++;
-        }
-        return true;
-    }
-
-    private static class Placement {
-        final List<Integer> cells;
-        Placement(List<Integer> c) { 
-			this.cells = c; 
-		}
+        final boolean[] usable = table.usable(board);
+        final int[] order = new int[usable.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        if (random != null)
+            for (int i = order.length - 1; i > 0; i--) {//Fisher-Yates shuffle
+                int j = random.nextInt(i + 1), t = order[i];
+                order[i] = order[j]; order[j] = t;
+            }
+        for (int i: order)
+            if (usable[i]) {
+                if (counts == null) solver.addRow(i, table.cells, table.offsets[i], table.offsets[i + 1]);
+                else solver.addRow(i, table.cells, table.offsets[i], table.offsets[i + 1], table.pieces[i]);
+            }
+        return solver;
     }
 
     static class DLX {
@@ -74,6 +468,10 @@ public class DLXPolyominoSolver extends AbstractPolyominoSolver {
         private final ColumnNode root = new ColumnNode(-1);
         private final ColumnNode[] columnNodes;
         private List<Integer> solution;
+        SolverStats stats;//null: no statistics
+        SearchBudget budget;
+        SearchTap tap;//null: no live view
+        private int ticks;
 
         DLX(int n) {
             columnNodes = new ColumnNode[n];
@@ -87,10 +485,10 @@ public class DLXPolyominoSolver extends AbstractPolyominoSolver {
 
         void coverColumn(int index) { cover(columnNodes[index]); }
 
-        void addRow(int rIdx, List<Integer> cells) {
+        void addRow(int rIdx, int[] cells, int from, int to) {
             Node first = null;
-            for (int ci: cells) {
-                ColumnNode c = columnNodes[ci];
+            for (int k = from; k < to; k++) {
+                ColumnNode c = columnNodes[cells[k]];
                 if (c.L.R != c) continue; 
 
                 Node n = new Node(); n.r = rIdx; n.C = c; n.U = c.U; n.D = c;
@@ -102,41 +500,76 @@ public class DLXPolyominoSolver extends AbstractPolyominoSolver {
 
         List<Integer> solve() { solution = new ArrayList<>(); return search() ? solution : null; }
 
+        /**
+         * Iterative search with an explicit stack of the chosen row nodes, its depth is not limited by the thread stack.
+         * A chosen node is the next branch of its column, the column header itself when all the branches are done.
+         */
         private boolean search() {
-            if (Thread.currentThread().isInterrupted()) return false;
-
-            if (root.R == root) return true;
-
-            ColumnNode c = (ColumnNode) root.R;
-            for (ColumnNode t = (ColumnNode) root.R; t != root; t = (ColumnNode) t.R)
-                if (t.s < c.s) c = t;
-            
-            if (c.s == 0) return false;
-            
-            cover(c);
-            for (Node r = c.D; r != c; r = r.D) {
-                solution.add(r.r);
-                for (Node j = r.R; j != r; j = j.R)
-					cover(j.C);
-                if (search()) return true;
-                for (Node j = r.L; j != r; j = j.L) 
-					uncover(j.C);
-                solution.remove(solution.size() - 1);
+            final Node[] chosen = new Node[columnNodes.length];
+            final int[] branches = new int[columnNodes.length];
+            int depth = 0;
+            Node r;
+            node:
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) return false;
+                if (budget != null && (++ticks & (SearchBudget.CHECK_INTERVAL - 1)) == 0 && budget.check()) return false;
+
+                if (root.R == root) {
+                    if (stats != null) stats.node(depth, 0);
+                    return true;
+                }
+
+                ColumnNode c = (ColumnNode) root.R;
+                for (ColumnNode t = (ColumnNode) root.R; t != root; t = (ColumnNode) t.R)
+                    if (t.s < c.s) c = t;
+
+                if (stats != null) stats.node(depth, c.s);
+                r = null;//no branch: backtrack
+                if (c.s != 0) {
+                    cover(c);
+                    r = c.D;
+                    branches[depth] = 0;
+                }
+
+                while (true) {
+                    if (r != null) {
+                        if (r != r.C) {
+                            if (budget != null && depth < SearchBudget.PROGRESS_DEPTH) budget.branch(depth, branches[depth]++, r.C.s);
+                            chosen[depth++] = r;
+                            solution.add(r.r);
+                            for (Node j = r.R; j != r; j = j.R)
+                                cover(j.C);
+                            if (tap != null) tap.place(r.r);
+                            continue node;
+                        }
+                        uncover(r.C);
+                    }
+                    if (depth == 0) return false;
+                    r = chosen[--depth];
+                    for (Node j = r.L; j != r; j = j.L)
+                        uncover(j.C);
+                    solution.remove(solution.size() - 1);
+                    if (tap != null) tap.remove();
+                    if (stats != null) stats.backtracks++;
+                    r = r.D;
+                }
             }
-            uncover(c);
-            return false;
         }
 
         private void cover(ColumnNode c) {
             c.R.L = c.L; c.L.R = c.R;
+            int updates = 1;
             for (Node i = c.D; i != c; i = i.D)
-                for (Node j = i.R; j != i; j = j.R) { j.D.U = j.U; j.U.D = j.D; j.C.s--; }
+                for (Node j = i.R; j != i; j = j.R) { j.D.U = j.U; j.U.D = j.D; j.C.s--; updates++; }
+            if (stats != null) stats.linkUpdates += updates;
         }
 
         private void uncover(ColumnNode c) {
+            int updates = 1;
             for (Node i = c.U; i != c; i = i.U)
-                for (Node j = i.L; j != i; j = j.L) { j.C.s++; j.D.U = j; j.U.D = j; }
+                for (Node j = i.L; j != i; j = j.L) { j.C.s++; j.D.U = j; j.U.D = j; updates++; }
             c.R.L = c; c.L.R = c;
+            if (stats != null) stats.linkUpdates += updates;
         }
     }
 }
\ No newline at end of file
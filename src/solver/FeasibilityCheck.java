@@ -0,0 +1,209 @@
+package solver;
+
+import java.util.*;
+/**
+ * Refutation of impossible tilings before any search, by necessary conditions:
+ * the free cells and each empty region must have an area that is a sum of piece sizes, every free cell must be covered
+ * by some placement, and for colorings of the board (cells with row, column, row + column or row - column equal to j mod k)
+ * some combination of placements must cover the free area and exactly the free cells of the color, e.g. the checkerboard
+ * coloring refutes the T tetromino on boards of area 4 mod 8. A reason is returned for each refuted instance.
+ * Piece types are unlimited, as in DLXPolyominoSolver.solve and PolyominoSolver.solve.
+ */
+public final class FeasibilityCheck {
+    private static final int MAX_PLACEMENT_CELLS = 1 << 14;//larger boards are checked by area only
+    private static final int MAX_COLORING_CELLS = 1 << 12;
+    private static final int MAX_MODULUS = 4;
+    private static final String FEASIBLE = "";
+    private static final String[] KINDS = {"row", "column", "row + column", "row - column"};
+    private static final PlacementCache placementCache = new PlacementCache(16);//for the solvers without placement table, apart from the DLX tables
+
+    private FeasibilityCheck() {}
+
+    /**
+     * Reason why the board cannot be tiled with the given piece types, null if none is found:
+     * the board may still have no tiling
+     */
+    public static String refute(int[][] board, List<boolean[][]> polyominoTypes) {
+        return refute(board, Piece.compile(polyominoTypes));
+    }
+
+    /**
+     * Reason why the board cannot be tiled with the pieces, null if none is found.
+     * The placements are built for this check only, on large boards it may take a while.
+     */
+    public static String refute(int[][] board, Piece[] pieces) {
+        return refute(board, pieces, false);
+    }
+
+    /**
+     * Refutation with the placements cached by the check, which remembers the outcome for the empty board
+     */
+    static String refuteCached(int[][] board, Piece[] pieces) {
+        return refute(board, pieces, true);
+    }
+
+    private static String refute(int[][] board, Piece[] pieces, boolean cached) {
+        final int rows = board.length, cols = board[0].length;
+        final int free = freeCells(board);
+        if (free == 0) return null;
+        final Set<Integer> sizes = Piece.sizes(pieces);
+        if (!summable(free, sizes)) return areaReason(free, sizes);
+        if (rows * cols > MAX_PLACEMENT_CELLS) return null;
+        return refute(board, cached ? placementCache.get(rows, cols, pieces) : PlacementCache.build(rows, cols, pieces));
+    }
+
+    /**
+     * Refutation with the placements of the pieces on the empty board, cached in the table for the empty board
+     */
+    static String refute(int[][] board, PlacementTable table) {
+        final int free = freeCells(board);
+        if (free == 0) return null;
+        if (free == table.rows * table.cols) {
+            String reason = table.refutation;
+            if (reason == null) table.refutation = reason = check(board, table, free);
+            return reason == FEASIBLE ? null : reason;
+        }
+        final String reason = check(board, table, free);
+        return reason == FEASIBLE ? null : reason;
+    }
+
+    private static String check(int[][] board, PlacementTable table, int free) {
+        final int rows = table.rows, cols = table.cols;
+        final boolean[] usable = table.usable(board);
+        final boolean[] covered = new boolean[rows * cols];
+        final Set<Integer> sizes = new TreeSet<>();
+        for (int p = 0; p < usable.length; p++)
+            if (usable[p]) {
+                sizes.add(table.offsets[p + 1] - table.offsets[p]);
+                for (int k = table.offsets[p]; k < table.offsets[p + 1]; k++)
+                    covered[table.cells[k]] = true;
+            }
+        if (sizes.isEmpty()) return "no piece fits in the free cells";
+        if (!summable(free, sizes)) return areaReason(free, sizes);
+
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                if (board[r][c] == 0 && !covered[r * cols + c])
+                    return "cell " + r + "," + c + " cannot be covered by any piece";
+
+        final String reason = checkRegions(board, sizes);
+        if (reason != null) return reason;
+        if (free > MAX_COLORING_CELLS) return FEASIBLE;
+
+        final int[] color = new int[rows * cols];
+        for (int k = 2; k <= MAX_MODULUS; k++)
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                for (int r = 0; r < rows; r++)
+                    for (int c = 0; c < cols; c++) {
+                        int v = kind == 0 ? r : kind == 1 ? c : kind == 2 ? r + c : r - c + k * cols;
+                        color[r * cols + c] = v % k;
+                    }
+                for (int j = 0; j < (k == 2 ? 1 : k); j++) {//the two classes of a 2-coloring give the same condition
+                    if (!colorable(board, table, usable, color, j, free))
+                        return "no combination of pieces covers the " + free + " free cells with exactly "
+                            + classCells(board, color, j, cols) + " of them where (" + KINDS[kind] + ") mod " + k + " = " + j;
+                }
+            }
+        return FEASIBLE;
+    }
+
+    /**
+     * Every empty region must have a size that is a sum of piece sizes
+     */
+    private static String checkRegions(int[][] board, Set<Integer> sizes) {
+        final int rows = board.length, cols = board[0].length;
+        final boolean[] visited = new boolean[rows * cols];
+        final int[] stack = new int[rows * cols];
+        for (int r0 = 0; r0 < rows; r0++)
+            for (int c0 = 0; c0 < cols; c0++) {
+                if (board[r0][c0] != 0 || visited[r0 * cols + c0]) continue;
+                int top = 0, n = 0;
+                stack[top++] = r0 * cols + c0;
+                visited[r0 * cols + c0] = true;
+                while (top > 0) {
+                    int cell = stack[--top], r = cell / cols, c = cell % cols;
+                    n++;
+                    if (r > 0 && board[r - 1][c] == 0 && !visited[cell - cols]) { visited[cell - cols] = true; stack[top++] = cell - cols; }
+                    if (r < rows - 1 && board[r + 1][c] == 0 && !visited[cell + cols]) { visited[cell + cols] = true; stack[top++] = cell + cols; }
+                    if (c > 0 && board[r][c - 1] == 0 && !visited[cell - 1]) { visited[cell - 1] = true; stack[top++] = cell - 1; }
+                    if (c < cols - 1 && board[r][c + 1] == 0 && !visited[cell + 1]) { visited[cell + 1] = true; stack[top++] = cell + 1; }
+                }
+                if (!summable(n, sizes))
+                    return "the empty region of " + n + " cells at " + r0 + "," + c0 + " is not a sum of the piece sizes " + sizes;
+            }
+        return null;
+    }
+
+    /**
+     * Some combination of placements covers free cells, target of them of color j: dynamic programming over the area,
+     * the reachable counts of color j cells for each area in a bitset
+     */
+    private static boolean colorable(int[][] board, PlacementTable table, boolean[] usable, int[] color, int j, int free) {
+        final int target = classCells(board, color, j, board[0].length);
+        final Set<Long> pairs = new HashSet<>();//size << 32 | cells of color j, over all placements
+        for (int p = 0; p < usable.length; p++)
+            if (usable[p]) {
+                int w = 0;
+                for (int k = table.offsets[p]; k < table.offsets[p + 1]; k++)
+                    if (color[table.cells[k]] == j) w++;
+                pairs.add((long) (table.offsets[p + 1] - table.offsets[p]) << 32 | w);
+            }
+        final int words = (target >>> 6) + 1;
+        final long[] reach = new long[(free + 1) * words];//bit w of area a: a cells with w of color j can be covered
+        reach[0] = 1;
+        for (int a = 0; a < free; a++) {
+            final int from = a * words;
+            boolean any = false;
+            for (int i = 0; i < words && !any; i++)
+                any = reach[from + i] != 0;
+            if (!any) continue;
+            for (long pair: pairs) {
+                final int s = (int) (pair >>> 32), w = (int) pair;
+                if (a + s > free || w > target) continue;
+                shiftOr(reach, from, (a + s) * words, words, w);
+            }
+        }
+        return (reach[free * words + (target >>> 6)] & 1L << (target & 63)) != 0;
+    }
+
+    /**
+     * Bits of words words from index from shifted up by shift, or-ed into the words at index to
+     */
+    private static void shiftOr(long[] bits, int from, int to, int words, int shift) {
+        final int wordShift = shift >>> 6, bitShift = shift & 63;
+        for (int i = words - 1; i >= wordShift; i--) {
+            long v = bits[from + i - wordShift] << bitShift;
+            if (bitShift != 0 && i - wordShift > 0) v |= bits[from + i - wordShift - 1] >>> (64 - bitShift);
+            bits[to + i] |= v;
+        }
+    }
+
+    private static int classCells(int[][] board, int[] color, int j, int cols) {
+        int n = 0;
+        for (int r = 0; r < board.length; r++)
+            for (int c = 0; c < cols; c++)
+                if (board[r][c] == 0 && color[r * cols + c] == j) n++;
+        return n;
+    }
+
+    private static int freeCells(int[][] board) {
+        int free = 0;
+        for (int[] row: board)
+            for (int cell: row)
+                if (cell == 0) free++;
+        return free;
+    }
+
+    private static boolean summable(int area, Set<Integer> sizes) {
+        final boolean[] dp = new boolean[area + 1];
+        dp[0] = true;
+        for (int size: sizes)
+            for (int i = size; i <= area; i++)
+                if (dp[i - size]) dp[i] = true;
+        return dp[area];
+    }
+
+    private static String areaReason(int free, Set<Integer> sizes) {
+        return "the " + free + " free cells are not a sum of the piece sizes " + sizes;
+    }
+}
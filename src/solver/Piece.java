@@ -0,0 +1,157 @@
+package solver;
+
+import java.util.*;
+/**
+ * Polyomino compiled once for the solvers: its size, the distinct fixed orientations (rotations and reflections),
+ * each with its cells and one bitmask per row, and the canonical form, the smallest orientation, shared by every
+ * orientation of the same free piece. Pieces are immutable and equal when their canonical forms are equal.
+ */
+public final class Piece {
+    public final int size;
+    final Orientation[] orientations;
+    final String code;//of the canonical form, orders the pieces
+
+    /**
+     * Orientation compiled to one bitmask per row, bit j set if column j is part of the shape
+     */
+    static final class Orientation {
+        final boolean[][] shape;
+        final int height, width, size;
+        final long[] rowMasks;
+        final int[] cells;//dr * width + dc for each cell, row by row
+        final int first;//column of the first cell in row 0, the only cell that can cover the first empty cell of the board
+
+        Orientation(boolean[][] shape) {
+            this.shape = shape;
+            height = shape.length;
+            width = shape[0].length;
+            rowMasks = new long[height];
+            int n = 0;
+            for (int dr = 0; dr < height; dr++)
+                for (int dc = 0; dc < width; dc++)
+                    if (shape[dr][dc]) {
+                        rowMasks[dr] |= 1L << dc;
+                        n++;
+                    }
+            size = n;
+            cells = new int[n];
+            for (int dr = 0, k = 0; dr < height; dr++)
+                for (int dc = 0; dc < width; dc++)
+                    if (shape[dr][dc]) cells[k++] = dr * width + dc;
+            first = Long.numberOfTrailingZeros(rowMasks[0]);
+        }
+    }
+
+    private Piece(boolean[][] shape) {
+        final List<boolean[][]> shapes = AbstractPolyominoSolver.getUniqueOrientations(trim(shape));
+        orientations = new Orientation[shapes.size()];
+        String best = null;
+        for (int i = 0; i < orientations.length; i++) {
+            orientations[i] = new Orientation(shapes.get(i));
+            final String s = code(orientations[i].shape);
+            if (best == null || s.compareTo(best) < 0) best = s;
+        }
+        size = orientations[0].size;
+        code = best;
+    }
+
+    public static Piece of(boolean[][] shape) {
+        return new Piece(shape);
+    }
+
+    /**
+     * Compile every shape of the list, in order
+     */
+    public static Piece[] compile(List<boolean[][]> shapes) {
+        final Piece[] pieces = new Piece[shapes.size()];
+        for (int i = 0; i < pieces.length; i++)
+            pieces[i] = new Piece(shapes.get(i));
+        return pieces;
+    }
+
+    public int getOrientationCount() {
+        return orientations.length;
+    }
+
+    /**
+     * Copy of orientation i, the first one is the shape the piece was compiled from, trimmed to its filled cells
+     */
+    public boolean[][] getOrientation(int i) {
+        return copy(orientations[i].shape);
+    }
+
+    /**
+     * Copy of the smallest orientation, compared by height, width and then cells in row order
+     */
+    public boolean[][] getCanonicalForm() {
+        for (Orientation o: orientations)
+            if (code(o.shape).equals(code)) return copy(o.shape);
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Distinct sizes of the pieces
+     */
+    static Set<Integer> sizes(Piece[] pieces) {
+        final Set<Integer> sizes = new TreeSet<>();
+        for (Piece piece: pieces)
+            sizes.add(piece.size);
+        return sizes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Piece && ((Piece) o).code.equals(code);
+    }
+
+    @Override
+    public int hashCode() {
+        return code.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Piece " + Arrays.deepToString(getCanonicalForm()) + ", " + orientations.length + " orientations";
+    }
+
+    /**
+     * Height, width and cells as characters
+     */
+    private static String code(boolean[][] shape) {
+        final char[] code = new char[2 + shape.length * shape[0].length];
+        code[0] = (char) shape.length;
+        code[1] = (char) shape[0].length;
+        int k = 2;
+        for (boolean[] row: shape)
+            for (boolean cell: row)
+                code[k++] = cell ? '1' : '0';
+        return new String(code);
+    }
+
+    private static boolean[][] copy(boolean[][] shape) {
+        final boolean[][] copy = new boolean[shape.length][];
+        for (int r = 0; r < shape.length; r++)
+            copy[r] = shape[r].clone();
+        return copy;
+    }
+
+    /**
+     * Copy of the bounding box of the filled cells, the solvers anchor the orientations on their first row
+     */
+    private static boolean[][] trim(boolean[][] shape) {
+        int top = Integer.MAX_VALUE, bottom = -1, left = Integer.MAX_VALUE, right = -1;
+        for (int r = 0; r < shape.length; r++)
+            for (int c = 0; c < shape[r].length; c++)
+                if (shape[r][c]) {
+                    top = Math.min(top, r); bottom = r;
+                    left = Math.min(left, c); right = Math.max(right, c);
+                }
+        if (bottom < 0) throw new IllegalArgumentException("empty piece");
+        if (bottom - top >= 64 || right - left >= 64) throw new IllegalArgumentException("a piece must fit in 64 x 64 cells");
+        final boolean[][] trimmed = new boolean[bottom - top + 1][right - left + 1];
+        for (int r = top; r <= bottom; r++)
+            for (int c = left; c <= right; c++)
+                trimmed[r - top][c - left] = c < shape[r].length && shape[r][c];
+        return trimmed;
+    }
+}
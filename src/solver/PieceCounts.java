@@ -0,0 +1,54 @@
+package solver;
+
+import java.util.Arrays;
+/**
+ * Number of times each piece type may be used in a tiling: piece i is used at least min[i] and at most max[i] times,
+ * in the order of the piece list given to the solver. UNLIMITED as max leaves the piece unbounded.
+ */
+public class PieceCounts {
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    final int[] min, max;
+
+    public PieceCounts(int[] min, int[] max) {
+        if (min.length != max.length) throw new IllegalArgumentException("min and max must have the same length");
+        for (int i = 0; i < min.length; i++)
+            if (min[i] < 0 || max[i] < min[i]) throw new IllegalArgumentException("invalid count range for piece " + i);
+        this.min = min.clone();
+        this.max = max.clone();
+    }
+
+    /**
+     * Each piece used exactly counts[i] times, e.g. exactly(1, 1, ...) for puzzles using every piece once
+     */
+    public static PieceCounts exactly(int... counts) {
+        return new PieceCounts(counts, counts);
+    }
+
+    public static PieceCounts atMost(int... counts) {
+        return new PieceCounts(new int[counts.length], counts);
+    }
+
+    /**
+     * Each of n pieces used exactly once
+     */
+    public static PieceCounts once(int n) {
+        final int[] counts = new int[n];
+        Arrays.fill(counts, 1);
+        return exactly(counts);
+    }
+
+    int size() {
+        return min.length;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < min.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(min[i]).append("..").append(max[i] == UNLIMITED ? "*" : String.valueOf(max[i]));
+        }
+        return sb.append(']').toString();
+    }
+}
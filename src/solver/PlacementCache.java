@@ -0,0 +1,138 @@
+package solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+/**
+ * Bounded LRU cache of placement tables keyed by board size and canonical piece set, holding at most capacity tables
+ * and MAX_BYTES of placements. A missing table is built outside the lock: the solves needing other tables do not wait,
+ * those needing the same table wait for the one build.
+ */
+public final class PlacementCache {
+    static final long MAX_BYTES = 64L << 20;
+
+    private final Map<String, PlacementTable> tables = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, FutureTask<PlacementTable>> building = new HashMap<>();
+    private int capacity;
+    private long bytes;
+    private long hits, misses, evictions;
+
+    PlacementCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    PlacementTable get(int rows, int cols, Piece[] pieces) {
+        final TreeMap<String, Piece> distinct = distinct(pieces);
+        final StringBuilder sb = new StringBuilder().append(rows).append('x').append(cols);
+        for (String code: distinct.keySet())
+            sb.append(':').append(code);
+        final String key = sb.toString();
+        final FutureTask<PlacementTable> build;
+        final boolean builder;
+        synchronized (this) {
+            final PlacementTable table = tables.get(key);
+            if (table != null) {
+                hits++;
+                return table;
+            }
+            misses++;
+            final FutureTask<PlacementTable> pending = building.get(key);
+            builder = pending == null;
+            build = builder ? new FutureTask<>(() -> PlacementTable.build(rows, cols, distinct.values().toArray(new Piece[0]))) : pending;
+            if (builder) building.put(key, build);
+        }
+        if (!builder) return await(build);
+        build.run();
+        PlacementTable table = null;
+        try {
+            return table = await(build);
+        } finally {
+            synchronized (this) {
+                building.remove(key);
+                if (table != null) put(key, table);
+            }
+        }
+    }
+
+    /**
+     * Result of build, waiting uninterruptibly: the build is bounded, the interrupt is kept for the search
+     */
+    private static PlacementTable await(FutureTask<PlacementTable> build) {
+        boolean interrupted = false;
+        try {
+            while (true)
+                try {
+                    return build.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                    if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                    throw new RuntimeException(e.getCause());
+                }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void put(String key, PlacementTable table) {
+        final long size = bytes(table);
+        if (size > MAX_BYTES) return;//too large to keep, used by its solve only
+        tables.put(key, table);
+        bytes += size;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<PlacementTable> eldest = tables.values().iterator();
+        while (tables.size() > capacity || bytes > MAX_BYTES) {
+            bytes -= bytes(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long bytes(PlacementTable table) {
+        return 4L * (table.offsets.length + table.cells.length + (table.pieces == null ? 0 : table.pieces.length));
+    }
+
+    /**
+     * Table built as a cached table would be for these pieces, whatever is cached: a table cached for the same pieces given
+     * in other orientations numbers the placements differently
+     */
+    static PlacementTable build(int rows, int cols, Piece[] pieces) {
+        return PlacementTable.build(rows, cols, distinct(pieces).values().toArray(new Piece[0]));
+    }
+
+    /**
+     * Canonical piece set, sorted
+     */
+    private static TreeMap<String, Piece> distinct(Piece[] pieces) {
+        final TreeMap<String, Piece> distinct = new TreeMap<>();
+        for (Piece piece: pieces)
+            distinct.put(piece.code, piece);
+        return distinct;
+    }
+
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    public synchronized void clear() {
+        tables.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() { return tables.size(); }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized long getEvictions() { return evictions; }
+
+    @Override
+    public synchronized String toString() {
+        return "PlacementCache: " + tables.size() + "/" + capacity + " tables, " + (bytes >> 10) + " KB, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+}
@@ -0,0 +1,94 @@
+package solver;
+
+import java.util.*;
+/**
+ * Every placement of a set of pieces on an empty rows x cols board, stored as primitive arrays:
+ * the cells of placement i are cells[offsets[i]] .. cells[offsets[i + 1] - 1], as row * cols + column.
+ * Tables built per piece also record in pieces[i] the index of the piece of placement i.
+ */
+final class PlacementTable {
+    final int rows, cols;
+    final int[] offsets, cells;
+    final int[] pieces;//null: identical shapes of different pieces merged
+    volatile String refutation;//of the empty board by FeasibilityCheck, "" if none, null if not checked yet
+
+    private PlacementTable(int rows, int cols, int[] offsets, int[] cells, int[] pieces) {
+        this.rows = rows;
+        this.cols = cols;
+        this.offsets = offsets;
+        this.cells = cells;
+        this.pieces = pieces;
+    }
+
+    int size() {
+        return offsets.length - 1;
+    }
+
+    static PlacementTable build(int rows, int cols, Piece[] pieces) {
+        return build(rows, cols, pieces, null);
+    }
+
+    /**
+     * Placements of each piece kept apart, skipping the pieces whose included flag is false
+     */
+    static PlacementTable buildPerPiece(int rows, int cols, Piece[] pieces, boolean[] included) {
+        return build(rows, cols, pieces, included);
+    }
+
+    private static PlacementTable build(int rows, int cols, Piece[] pieces, boolean[] included) {
+        int count = 0, n_cells = 0;
+        final List<Piece.Orientation> shapes = new ArrayList<>();
+        final List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < pieces.length; i++) {
+            if (included != null && !included[i]) continue;
+            final int first = included == null ? 0 : shapes.size();
+            for (Piece.Orientation shape: pieces[i].orientations)//identical shapes give identical placements, keep just one (per piece if pieces are kept apart)
+                if (!contains(shapes.subList(first, shapes.size()), shape) && shape.height <= rows && shape.width <= cols) {
+                    shapes.add(shape);
+                    owners.add(i);
+                    int positions = (rows - shape.height + 1) * (cols - shape.width + 1);
+                    count += positions;
+                    n_cells += positions * shape.size;
+                }
+        }
+
+        final int[] offsets = new int[count + 1];
+        final int[] cells = new int[n_cells];
+        final int[] owner = included == null ? null : new int[count];
+        int p = 0, k = 0;
+        for (int s = 0; s < shapes.size(); s++) {
+            final Piece.Orientation shape = shapes.get(s);
+            for (int r = 0; r <= rows - shape.height; r++)
+                for (int c = 0; c <= cols - shape.width; c++) {
+                    for (int cell: shape.cells)
+                        cells[k++] = (r + cell / shape.width) * cols + (c + cell % shape.width);
+                    if (owner != null) owner[p] = owners.get(s);
+                    offsets[++p] = k;
+                }
+        }
+        return new PlacementTable(rows, cols, offsets, cells, owner);
+    }
+
+    private static boolean contains(List<Piece.Orientation> shapes, Piece.Orientation shape) {
+        for (Piece.Orientation o: shapes)
+            if (Arrays.deepEquals(o.shape, shape.shape))
+                return true;
+        return false;
+    }
+
+    /**
+     * Placements not touching any pre-filled cell of the board
+     */
+    boolean[] usable(int[][] board) {
+        final boolean[] usable = new boolean[size()];
+        for (int p = 0; p < usable.length; p++) {
+            usable[p] = true;
+            for (int k = offsets[p]; k < offsets[p + 1]; k++)
+                if (board[cells[k] / cols][cells[k] % cols] != 0) {
+                    usable[p] = false;
+                    break;
+                }
+        }
+        return usable;
+    }
+}
@@ -0,0 +1,203 @@
+package solver;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+/**
+ * Generation of the free polyominoes of n cells by Redelmeier's algorithm: every fixed polyomino is grown exactly once
+ * from its lowest, leftmost cell, adding cells of the untried set in turn, and it is kept only if it is in canonical form,
+ * the smallest of its images under the rotations and reflections (the 8 orientations of getUniqueOrientations).
+ * Every free polyomino is produced once without remembering the polyominoes already found, so memory does not grow
+ * with their number. The branches of the first cells are independent and grown in parallel on a ForkJoinPool.
+ */
+public final class PolyominoEnumerator {
+    private static final int BRANCHES_PER_THREAD = 16;//seed branches grown in parallel, to balance the load
+
+    private final int n, width;//cell (x, y) at index (y + 1) * width + x + n, x in -n..n, y in -1..n
+    private final int[] steps;
+    private final Consumer<int[]> leaves;//codes of the canonical polyominoes, null: just count
+
+    /**
+     * Number of free polyominoes of n cells, the branches are grown in parallel on the pool if not null
+     */
+    public static long count(int n, ForkJoinPool pool) {
+        return new PolyominoEnumerator(n, null).run(pool);
+    }
+
+    /**
+     * Pass every free polyomino of n cells to consumer, in canonical form, in no particular order.
+     * With a pool the consumer is called concurrently and must be thread-safe. Returns the number of polyominoes.
+     */
+    public static long enumerate(int n, Consumer<boolean[][]> consumer, ForkJoinPool pool) {
+        return new PolyominoEnumerator(n, codes -> consumer.accept(shape(codes))).run(pool);
+    }
+
+    /**
+     * Every free polyomino of n cells in canonical form, sorted by their cells, generated on the common pool
+     */
+    public static List<boolean[][]> generate(int n) {
+        final Queue<int[]> found = new ConcurrentLinkedQueue<>();
+        new PolyominoEnumerator(n, codes -> found.add(codes.clone())).run(ForkJoinPool.commonPool());
+        final List<int[]> sorted = new ArrayList<>(found);
+        sorted.sort(Arrays::compare);
+        final List<boolean[][]> shapes = new ArrayList<>(sorted.size());
+        for (int[] codes: sorted)
+            shapes.add(shape(codes));
+        return shapes;
+    }
+
+    private PolyominoEnumerator(int n, Consumer<int[]> leaves) {
+        if (n < 1 || n > 63) throw new IllegalArgumentException("the number of cells must be in 1..63");
+        this.n = n;
+        this.leaves = leaves;
+        width = 2 * n + 1;
+        steps = new int[] {1, width, -1, -width};
+    }
+
+    private long run(ForkJoinPool pool) {
+        final int parallelism = pool == null ? 1 : pool.getParallelism();
+        int split = 0;//depth of the seed branches
+        List<int[]> seeds = Collections.singletonList(new int[0]);
+        while (parallelism > 1 && split + 1 < n && seeds.size() < parallelism * BRANCHES_PER_THREAD) {
+            final Growth prefixes = new Growth(new int[0], ++split);
+            prefixes.grow();
+            seeds = prefixes.prefixes;
+        }
+        if (seeds.size() == 1) {
+            final Growth growth = new Growth(seeds.get(0), 0);
+            growth.grow();
+            return growth.count;
+        }
+        final List<ForkJoinTask<Long>> tasks = new ArrayList<>(seeds.size());
+        for (int[] seed: seeds)
+            tasks.add(pool.submit(() -> {
+                final Growth growth = new Growth(seed, 0);
+                growth.grow();
+                return growth.count;
+            }));
+        long count = 0;
+        for (ForkJoinTask<Long> task: tasks)
+            count += task.join();
+        return count;
+    }
+
+    /**
+     * Depth first growth of the fixed polyominoes following the branches of path on its first cells,
+     * collecting the branch paths of the polyominoes of collect cells if collect > 0
+     */
+    private final class Growth {
+        final int[] path, branches;
+        final int collect;
+        final boolean[] reached;//cells in the polyomino, in the untried set or excluded
+        final int[][] untried;//untried set of each depth
+        final int[] cells;
+        final int[] codes, image;
+        final List<int[]> prefixes = new ArrayList<>();
+        long count;
+
+        Growth(int[] path, int collect) {
+            this.path = path;
+            this.collect = collect;
+            branches = new int[n];
+            reached = new boolean[(n + 2) * width];
+            for (int x = 0; x < width; x++)
+                reached[x] = true;//y = -1
+            for (int x = 0; x < n; x++)
+                reached[width + x] = true;//y = 0, x < 0
+            for (int y = 0; y < n + 2; y++) {//borders, never reached by n cells
+                reached[y * width] = true;
+                reached[y * width + width - 1] = true;
+            }
+            untried = new int[n][3 * n + 2];
+            cells = new int[n];
+            codes = new int[n];
+            image = new int[n];
+        }
+
+        void grow() {
+            final int origin = width + n;
+            reached[origin] = true;
+            untried[0][0] = origin;
+            grow(0, 1);
+        }
+
+        private void grow(int depth, int size) {
+            final int[] candidates = untried[depth];
+            for (int branch = 0; size > 0; branch++) {
+                final int cell = candidates[--size];//removed from the untried set of the next branches, stays reached
+                if (depth < path.length && branch != path[depth]) continue;
+                cells[depth] = cell;
+                branches[depth] = branch;
+                if (depth + 1 == collect) prefixes.add(Arrays.copyOf(branches, collect));
+                else if (depth + 1 == n) leaf();
+                else {
+                    final int[] next = untried[depth + 1];
+                    System.arraycopy(candidates, 0, next, 0, size);
+                    int m = size;
+                    for (int step: steps)
+                        if (!reached[cell + step]) {
+                            reached[cell + step] = true;
+                            next[m++] = cell + step;
+                        }
+                    grow(depth + 1, m);
+                    for (int i = size; i < m; i++)
+                        reached[next[i]] = false;
+                }
+                if (depth < path.length) break;
+            }
+        }
+
+        /**
+         * Keep the polyomino if no rotation or reflection has smaller sorted cell codes
+         */
+        private void leaf() {
+            transform(0, codes);
+            for (int t = 1; t < 8; t++) {
+                transform(t, image);
+                if (Arrays.compare(image, codes) < 0) return;
+            }
+            count++;
+            if (leaves != null) leaves.accept(codes);
+        }
+
+        /**
+         * Sorted codes y << 6 | x of the cells after symmetry t: bit 2 swaps x and y, bits 0 and 1 mirror x and y,
+         * translated to x, y >= 0
+         */
+        private void transform(int t, int[] out) {
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                int x = cells[i] % width - n, y = cells[i] / width - 1;
+                if ((t & 4) != 0) { int swap = x; x = y; y = swap; }
+                if ((t & 1) != 0) x = -x;
+                if ((t & 2) != 0) y = -y;
+                out[i] = y << 16 | x & 0xffff;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+            }
+            for (int i = 0; i < n; i++) {
+                final int code = (out[i] >> 16) - minY << 6 | (short) out[i] - minX;
+                int j = i;
+                while (j > 0 && out[j - 1] > code) {//insertion sort, the codes before i are already translated
+                    out[j] = out[j - 1];
+                    j--;
+                }
+                out[j] = code;
+            }
+        }
+    }
+
+    private static boolean[][] shape(int[] codes) {
+        int height = 0, width = 0;
+        for (int code: codes) {
+            height = Math.max(height, (code >>> 6) + 1);
+            width = Math.max(width, (code & 63) + 1);
+        }
+        final boolean[][] shape = new boolean[height][width];
+        for (int code: codes)
+            shape[code >>> 6][code & 63] = true;
+        return shape;
+    }
+}
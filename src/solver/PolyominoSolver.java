@@ -2,129 +2,411 @@ package solver;
 
 import java.util.*;
 /**
- * Polyominoes Solver based on recursion: try "harder" pieces before and prune impossible holes early
+ * Polyominoes Solver based on recursion: try "harder" pieces before and prune impossible holes early.
+ * The first empty cell is always filled next, so different orders of the same placements reach the same board state:
+ * the states proved without solution are kept in a transposition table and not searched again.
+ * The search is iterative, with an explicit stack of the pieces placed: its depth is not limited by the thread stack,
+ * and it can be saved to a SearchCheckpoint given in SolveLimits and resumed from it.
  */
 public class PolyominoSolver extends AbstractPolyominoSolver {
 
 	public static boolean solve(int[][] board, List<boolean[][]> polyominoTypes) {
-		int n_filled = 0;
+		return solve(board, polyominoTypes, (SolverStats) null);
+	}
+
+	/**
+	 * Solve collecting search statistics in stats, if not null
+	 */
+	public static boolean solve(int[][] board, List<boolean[][]> polyominoTypes, SolverStats stats) {
+		return solve(board, polyominoTypes, null, stats) == SolveResult.SOLVED;
+	}
+
+	/**
+	 * Solve within the time and node budget given by limits, no limits if null
+	 */
+	public static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, SolveLimits limits) {
+		return solve(board, polyominoTypes, limits, null);
+	}
+
+	/**
+	 * Solve within the time and node budget given by limits, no limits if null, collecting search statistics in stats, if not null
+	 */
+	public static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, SolveLimits limits, SolverStats stats) {
+		return solve(board, Piece.compile(polyominoTypes), limits, stats, null);
+	}
+
+	/**
+	 * Solve with pieces compiled once by the caller, within the time and node budget given by limits, no limits if null
+	 */
+	public static SolveResult solve(int[][] board, Piece[] pieces, SolveLimits limits) {
+		return solve(board, pieces, limits, null, null);
+	}
+
+	/**
+	 * Solve restarting on the node limit schedule of restarts, with a different random order of the equally hard orientations
+	 * at each restart, within the budget given by limits, no limits if null
+	 */
+	public static SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, RestartStrategy restarts, SolveLimits limits) {
+		final TranspositionTable table = new TranspositionTable(board.length * board[0].length);//the refuted states hold for every restart
+		final Piece[] pieces = Piece.compile(polyominoTypes);
+		return restarts.run(limits, (attemptLimits, seed) -> solve(board, pieces, attemptLimits, null, seed == 0 ? null : new Random(seed), table));
+	}
+
+	private static SolveResult solve(int[][] board, Piece[] pieces, SolveLimits limits, SolverStats stats, Random random) {
+		return solve(board, pieces, limits, stats, random, new TranspositionTable(board.length * board[0].length));
+	}
+
+	private static SolveResult solve(int[][] board, Piece[] pieces, SolveLimits limits, SolverStats stats, Random random, TranspositionTable table) {
+		final SearchBudget budget = limits == null ? null : new SearchBudget(limits);
+		if (FeasibilityCheck.refuteCached(board, pieces) != null) {//refuted without search
+			if (budget != null) budget.done();
+			return SolveResult.NO_SOLUTION;
+		}
+		final SolveEvent event = new SolveEvent();
+		if (stats == null && event.isEnabled()) stats = new SolverStats();
+		event.begin();
+		long t0 = stats == null ? 0 : System.nanoTime();
 		int order = 1;
 		for (int[] row: board) 
-			for (int cell: row) {
-				if (cell > 0) n_filled++;
+			for (int cell: row)
 				if (cell >= order) order = cell + 1;
-			}
 
-		final List<boolean[][]> allOrientations = new ArrayList<>();
-		for (int i = 0; i < polyominoTypes.size(); i++) {
-            List<boolean[][]> orientations = getUniqueOrientations(polyominoTypes.get(i));
-            for (boolean[][] shape: orientations)
-				if (!containsShape(allOrientations, shape))
+		final List<Piece.Orientation> allOrientations = new ArrayList<>();
+		final List<boolean[][]> distinct = new ArrayList<>();
+		for (Piece piece: pieces)
+			for (Piece.Orientation shape: piece.orientations)
+				if (!containsShape(distinct, shape.shape)) {
+					distinct.add(shape.shape);
 					allOrientations.add(shape);
-        }
+				}
+
+		if (random != null) Collections.shuffle(allOrientations, random);//the sort is stable: equally hard orientations keep the shuffled order
 
 		// Sort orientations to try "harder" pieces before
 		allOrientations.sort((a, b) -> {
 			// Check for piece with higher size
-			int s1 = getPieceSize(a);
-			int s2 = getPieceSize(b);
-			if (s1 != s2) return s2 - s1;
+			if (a.size != b.size) return b.size - a.size;
 
 			// Check for piece with higher bounding box area
-			int area1 = a.length * a[0].length;
-			int area2 = b.length * b[0].length;
-			return area2 - area1;
+			return b.height * b.width - a.height * a.width;
 		});
 
-		// Find the smallest piece size to prune impossible holes early
-		int minPieceSize = Integer.MAX_VALUE;
-		for (boolean[][] shape: allOrientations) {
-			int size = 0;
-			for (boolean[] r: shape) 
-				for (boolean c: r) 
-					if (c) size++;
-			minPieceSize = Math.min(minPieceSize, size);
+		final Piece.Orientation[] shapes = allOrientations.toArray(new Piece.Orientation[0]);
+		final BitBoard bitBoard = new BitBoard(board, shapes, table);
+		bitBoard.stats = stats;
+		bitBoard.budget = budget;
+		bitBoard.firstOrd = order;
+		if (limits != null && limits.checkpoint != null && random == null)
+			bitBoard.checkpoint = limits.checkpoint;
+		if (limits != null && limits.tap != null && (long) shapes.length * board.length * board[0].length <= Integer.MAX_VALUE) {//else the placements do not fit the tap
+			final int cells = board.length * board[0].length, cols = board[0].length;
+			limits.tap.start(board.length, cols, (placement, out) -> {//placement: shape * cells + anchor cell
+				final Piece.Orientation shape = shapes[placement / cells];
+				if (shape.size > out.length) return shape.size;
+				final int anchor = placement % cells;
+				int n = 0;
+				for (int cell: shape.cells)
+					out[n++] = anchor + cell / shape.width * cols + cell % shape.width;
+				return n;
+			});
+			bitBoard.tap = limits.tap;
+		}
+		if (stats != null) {
+			long t = System.nanoTime();
+			stats.setupNanos += t - t0;
+			t0 = t;
 		}
-		return solve(board, board[0].length, board.length, n_filled, order, allOrientations, minPieceSize);
+		final boolean solved;
+		if (bitBoard.checkpoint != null && !bitBoard.resume(SearchCheckpoint.instance("RECURSIVE solve", board, pieces, null)))
+			solved = bitBoard.solved();//finished: the saved stack is the solution, if any
+		else solved = bitBoard.solve();
+		if (bitBoard.tap != null) bitBoard.tap.finish();
+		if (stats != null) {
+			stats.searchNanos += System.nanoTime() - t0;
+			event.commit("RECURSIVE", board, solved, stats);
+		}
+		if (solved) return SolveResult.SOLVED;
+		if (bitBoard.halted) return SolveResult.TIMED_OUT;
+		if (budget != null) budget.done();
+		return SolveResult.NO_SOLUTION;
 	}
 
-	private static boolean solve(int[][] board, int cols, int rows, int n_filled, int ord, List<boolean[][]> allOrientations, int minPieceSize) {
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < cols; j++) {
-				if (board[i][j] == 0) {
-					if (!canFillHole(board, cols, rows, minPieceSize)) return false;
-
-					for (boolean[][] shape : allOrientations) {
-						for (int dr = 0; dr < shape.length; dr++) {
-							for (int dc = 0; dc < shape[0].length; dc++) {
-								if (shape[dr][dc] && canPlace(board, cols, rows, shape, i - dr, j - dc)) {
-									placePiece(board, shape, i - dr, j - dc, ord);//take area
-									int new_n_filled = n_filled + getPieceSize(shape);
-									if (new_n_filled == rows * cols || solve(board, cols, rows, new_n_filled, ord + 1, allOrientations, minPieceSize))
-										return true;
-									placePiece(board, shape, i - dr, j - dc, 0); //backtrack
-								}
+	/**
+	 * Board stored as words rows of long, a bit is set when the cell is filled; boards wider than 64 columns use more words per row
+	 */
+	private static class BitBoard {
+		final int[][] board;
+		final int rows, cols, words;
+		final long[] bits;
+		final long lastMask;//valid bits of the last word of a row
+		final Piece.Orientation[] shapes;
+		final TranspositionTable table;
+		long hash;//Zobrist hash of the filled cells
+
+		// Prune impossible holes early: every empty region must have a size that is a sum of piece sizes
+		final boolean[] summable;
+		final int[] stack, visited;//flood fill scratch buffers, a cell is visited when it holds the current stamp
+		int stamp;
+
+		SolverStats stats;//null: no statistics
+		int firstOrd;//ord of the first piece placed, the piece placed at depth d gets firstOrd + d
+		SearchBudget budget;
+		SearchTap tap;//null: no live view
+		SearchCheckpoint checkpoint;//null: not saved
+		int ticks;
+		boolean halted;//interrupted, out of budget or paused
+
+		// search stack: the piece placed at depth d is shapes[placed[d]] on the first empty cell anchors[d]
+		final int[] anchors, placed;
+		int depth, filled;
+
+		BitBoard(int[][] board, Piece.Orientation[] shapes, TranspositionTable table) {
+			this.board = board;
+			this.shapes = shapes;
+			this.table = table;
+			rows = board.length;
+			cols = board[0].length;
+			words = (cols + 63) >>> 6;
+			bits = new long[rows * words];
+			lastMask = (cols & 63) == 0 ? -1L : (1L << (cols & 63)) - 1;
+			for (int i = 0; i < rows; i++)
+				for (int j = 0; j < cols; j++)
+					if (board[i][j] != 0) {
+						filled++;
+						bits[i * words + (j >>> 6)] |= 1L << (j & 63);
+						hash ^= table.cellKeys[i * cols + j];
+					}
+
+			summable = new boolean[rows * cols + 1];
+			summable[0] = true;
+			for (int size = 1; size <= rows * cols; size++)
+				for (Piece.Orientation shape: shapes)
+					if (shape.size <= size && summable[size - shape.size]) {
+						summable[size] = true;
+						break;
+					}
+			stack = new int[rows * cols];
+			visited = new int[rows * cols];
+			anchors = new int[rows * cols];
+			placed = new int[rows * cols];
+		}
+
+		/**
+		 * Search from the current depth, fill the int[][] board and return true on the first solution
+		 */
+		boolean solve() {
+			if (depth == 0 && !canFillHoles()) {
+				if (checkpoint != null) checkpoint.save(placed, 0, 0, true);
+				return false;
+			}
+			node:
+			while (true) {
+				if (halted()) return false;
+				int cell = -1;
+				for (int i = depth == 0 ? 0 : anchors[depth - 1] / cols; i < rows && cell < 0; i++)
+					for (int w = 0; w < words; w++) {
+						long empty = ~bits[i * words + w] & (w == words - 1 ? lastMask : -1L);
+						if (empty != 0) {
+							cell = i * cols + (w << 6) + Long.numberOfTrailingZeros(empty);
+							break;
+						}
+					}
+				if (cell < 0) return false;
+				int k = shapes.length;//no branch: backtrack
+				boolean refuted = table.contains(hash);
+				if (refuted) {
+					if (stats != null) stats.transpositionHits++;
+				} else {
+					if (stats != null) stats.node(depth, 0);
+					anchors[depth] = cell;
+					k = 0;
+				}
+
+				while (true) {
+					final int i = anchors[depth] / cols, j = anchors[depth] % cols;
+					for (; k < shapes.length; k++) {
+						Piece.Orientation shape = shapes[k];
+						if (budget != null && depth < SearchBudget.PROGRESS_DEPTH) budget.branch(depth, k, shapes.length);
+						int c = j - shape.first;
+						if (canPlace(shape, i, c)) {
+							if (stats != null) stats.branch(depth);
+							placePiece(shape, i, c);//take area
+							if (tap != null) tap.place(k * rows * cols + i * cols + c);
+							placed[depth] = k;
+							filled += shape.size;
+							if (filled == rows * cols) {
+								depth++;
+								if (checkpoint != null) checkpoint.save(placed, depth, 0, true);
+								fillSolution();
+								return true;
+							}
+							if (canFillHoles(shape, i, c)) {
+								depth++;
+								continue node;
 							}
+							placePiece(shape, i, c); //backtrack
+							filled -= shape.size;
+							if (tap != null) tap.remove();
+							if (stats != null) stats.backtracks++;
 						}
 					}
-					return false;
+					if (!refuted) table.add(hash, depth);
+					refuted = false;
+					if (depth == 0) {
+						if (checkpoint != null) checkpoint.save(placed, 0, 0, true);
+						return false;
+					}
+					depth--;
+					k = placed[depth];
+					final Piece.Orientation shape = shapes[k];
+					placePiece(shape, anchors[depth] / cols, anchors[depth] % cols - shape.first);
+					filled -= shape.size;
+					if (tap != null) tap.remove();
+					if (stats != null) stats.backtracks++;
+					k++;
 				}
 			}
 		}
-		return false;
-	}
 
-	private static boolean canFillHole(int[][] board, int cols, int rows, int minSize) {
-		boolean[][] visited = new boolean[rows][cols];
+		/**
+		 * Checked before each node: true when the search must stop there, interrupted, out of budget or paused.
+		 * The checkpoint, if any, is saved when due and when stopping.
+		 */
+		private boolean halted() {
+			if (Thread.currentThread().isInterrupted()) return stopHere();
+			if ((++ticks & (SearchBudget.CHECK_INTERVAL - 1)) != 0) return false;
+			if (budget != null && budget.check()) return stopHere();
+			if (checkpoint != null && checkpoint.isDue() && checkpoint.save(placed, depth, 0, false)) halted = true;
+			return halted;
+		}
 
-		for (int r = 0; r < rows; r++) {
-			for (int c = 0; c < cols; c++) {
-				if (board[r][c] == 0 && !visited[r][c]) {
-					int holeSize = measureHoleSize(board, visited, r, c);
-					if (holeSize < minSize) return false;
-				}
+		private boolean stopHere() {
+			halted = true;
+			if (checkpoint != null) checkpoint.save(placed, depth, 0, false);
+			return true;
+		}
+
+		/**
+		 * Replay the pieces placed in the position saved by the checkpoint, returns false when the saved search is finished
+		 */
+		boolean resume(String instance) {
+			for (int k: checkpoint.resume(instance)) {
+				int cell = -1;
+				for (int p = depth == 0 ? 0 : anchors[depth - 1]; p < rows * cols && cell < 0; p++)
+					if (isEmpty(p / cols, p % cols)) cell = p;
+				if (cell < 0 || k < 0 || k >= shapes.length) throw checkpoint.mismatch();
+				final Piece.Orientation shape = shapes[k];
+				final int i = cell / cols, c = cell % cols - shape.first;
+				if (!canPlace(shape, i, c)) throw checkpoint.mismatch();
+				if (budget != null && depth < SearchBudget.PROGRESS_DEPTH) budget.branch(depth, k, shapes.length);
+				placePiece(shape, i, c);
+				filled += shape.size;
+				if (tap != null) tap.place(k * rows * cols + i * cols + c);
+				anchors[depth] = cell;
+				placed[depth++] = k;
 			}
+			return !checkpoint.isFinished();
 		}
-		return true;
-	}
 
-	private static int measureHoleSize(int[][] board, boolean[][] visited, int r, int c) {
-		if (board[r][c] != 0 || visited[r][c]) return 0;
-
-		visited[r][c] = true;
-		int count = 1;
-		if (r > 0)
-			count += measureHoleSize(board, visited, r - 1, c);
-		if (r < board.length - 1)
-			count += measureHoleSize(board, visited, r + 1, c);
-		if (c > 0)
-			count += measureHoleSize(board, visited, r, c - 1);
-		if (c < board[0].length - 1)
-			count += measureHoleSize(board, visited, r, c + 1);
-		return count;
-	}
+		/**
+		 * Fill the int[][] board with the pieces placed if they cover the board
+		 */
+		boolean solved() {
+			for (int i = 0; i < rows; i++)
+				for (int j = 0; j < cols; j++)
+					if (isEmpty(i, j)) return false;
+			fillSolution();
+			return true;
+		}
+
+		private void fillSolution() {
+			for (int d = 0; d < depth; d++) {
+				final Piece.Orientation shape = shapes[placed[d]];
+				fillPiece(shape, anchors[d] / cols, anchors[d] % cols - shape.first, firstOrd + d);
+			}
+		}
 
-	private static boolean canPlace(int[][] board, int cols, int rows, boolean[][] shape, int r, int c) {
-		for (int dr = 0; dr < shape.length; dr++) {
-			for (int dc = 0; dc < shape[0].length; dc++)
-				if (shape[dr][dc] && (r + dr < 0 || r + dr >= rows || c + dc < 0 || c + dc >= cols || board[r + dr][c + dc] != 0))
-					return false;
+		private boolean isEmpty(int r, int c) {
+			return (bits[r * words + (c >>> 6)] & (1L << (c & 63))) == 0;
 		}
-		return true;
-	}
 
-	private static void placePiece(int[][] board, boolean[][] shape, int r, int c, int val) {
-		for (int dr = 0; dr < shape.length; dr++)
-			for (int dc = 0; dc < shape[0].length; dc++)
-				if (shape[dr][dc]) 
-					board[r + dr][c + dc] = val;
-	}
+		/**
+		 * Check every empty region of the board
+		 */
+		boolean canFillHoles() {
+			stamp++;
+			for (int r = 0; r < rows; r++)
+				for (int c = 0; c < cols; c++)
+					if (isEmpty(r, c) && visited[r * cols + c] != stamp && !summable[measureHoleSize(r, c)])
+						return false;
+			return true;
+		}
+
+		/**
+		 * Check the empty regions touching the piece just placed, the other regions are unchanged
+		 */
+		private boolean canFillHoles(Piece.Orientation shape, int r, int c) {
+			stamp++;
+			for (int cell: shape.cells) {
+				int i = r + cell / shape.width, j = c + cell % shape.width;
+				if (i > 0 && !isHoleFillable(i - 1, j)) return false;
+				if (i < rows - 1 && !isHoleFillable(i + 1, j)) return false;
+				if (j > 0 && !isHoleFillable(i, j - 1)) return false;
+				if (j < cols - 1 && !isHoleFillable(i, j + 1)) return false;
+			}
+			return true;
+		}
+
+		private boolean isHoleFillable(int r, int c) {
+			return !isEmpty(r, c) || visited[r * cols + c] == stamp || summable[measureHoleSize(r, c)];
+		}
+
+		/**
+		 * Iterative flood fill of the empty region containing the given empty cell
+		 */
+		private int measureHoleSize(int r, int c) {
+			int top = 0, count = 0;
+			stack[top++] = r * cols + c;
+			visited[r * cols + c] = stamp;
+			while (top > 0) {
+				int cell = stack[--top];
+				int i = cell / cols, j = cell % cols;
+				count++;
+				if (i > 0 && isEmpty(i - 1, j) && visited[cell - cols] != stamp) { visited[cell - cols] = stamp; stack[top++] = cell - cols; }
+				if (i < rows - 1 && isEmpty(i + 1, j) && visited[cell + cols] != stamp) { visited[cell + cols] = stamp; stack[top++] = cell + cols; }
+				if (j > 0 && isEmpty(i, j - 1) && visited[cell - 1] != stamp) { visited[cell - 1] = stamp; stack[top++] = cell - 1; }
+				if (j < cols - 1 && isEmpty(i, j + 1) && visited[cell + 1] != stamp) { visited[cell + 1] = stamp; stack[top++] = cell + 1; }
+			}
+			return count;
+		}
+
+		private boolean canPlace(Piece.Orientation shape, int r, int c) {
+			if (c < 0 || c + shape.width > cols || r + shape.height > rows) return false;
+			int word = c >>> 6, shift = c & 63;
+			for (int dr = 0; dr < shape.height; dr++) {
+				int k = (r + dr) * words + word;
+				long mask = shape.rowMasks[dr];
+				if ((bits[k] & (mask << shift)) != 0) return false;
+				if (shift != 0 && word + 1 < words && (bits[k + 1] & (mask >>> (64 - shift))) != 0) return false;
+			}
+			return true;
+		}
 
-	private static int getPieceSize(boolean[][] shape) {
-		int count = 0;
-		for (boolean[] row: shape) 
-			for (boolean cell: row) 
-				if (cell) count++;
-		return count;
+		private void placePiece(Piece.Orientation shape, int r, int c) {//toggle the piece cells
+			int word = c >>> 6, shift = c & 63;
+			for (int dr = 0; dr < shape.height; dr++) {
+				int k = (r + dr) * words + word;
+				long mask = shape.rowMasks[dr];
+				bits[k] ^= mask << shift;
+				if (shift != 0 && word + 1 < words) bits[k + 1] ^= mask >>> (64 - shift);
+				for (int cell = (r + dr) * cols + c; mask != 0; mask &= mask - 1)
+					hash ^= table.cellKeys[cell + Long.numberOfTrailingZeros(mask)];
+			}
+		}
+
+		private void fillPiece(Piece.Orientation shape, int r, int c, int val) {//the int[][] board is written only for the solution
+			for (int cell: shape.cells)
+				board[r + cell / shape.width][c + cell % shape.width] = val;
+		}
 	}
 }
\ No newline at end of file
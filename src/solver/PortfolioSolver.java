@@ -0,0 +1,135 @@
+package solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Portfolio of solver configurations racing on the same instance: each configuration solves its own copy of the board
+ * on a separate thread, the first one to solve the instance or to prove it has no solution wins and the others are
+ * interrupted, which all the engines check at every search node. The winner of each instance is recorded.
+ */
+public class PortfolioSolver implements AutoCloseable {
+
+    /**
+     * A solver setting taking part to the race
+     */
+    public interface Configuration {
+        SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, SolveLimits limits);
+    }
+
+    private final Map<String, Configuration> configurations;
+    private final ExecutorService executor;
+    private final Map<String, LongAdder> wins = new ConcurrentHashMap<>();
+
+    private static class Outcome {
+        final String name;
+        final SolveResult result;
+        final int[][] board;
+        Outcome(String name, SolveResult result, int[][] board) { this.name = name; this.result = result; this.board = board; }
+    }
+
+    /**
+     * Portfolio of the linked and array DLX engines, the recursive solver and the given number of seeded array DLX variants
+     */
+    public PortfolioSolver(int seededVariants) {
+        this(defaultConfigurations(seededVariants));
+    }
+
+    /**
+     * Portfolio of the given configurations by name
+     */
+    public PortfolioSolver(Map<String, Configuration> configurations) {
+        if (configurations.isEmpty()) throw new IllegalArgumentException("empty portfolio");
+        this.configurations = new LinkedHashMap<>(configurations);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "portfolio solver");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static Map<String, Configuration> defaultConfigurations(int seededVariants) {
+        final Map<String, Configuration> configurations = new LinkedHashMap<>();
+        configurations.put("LINKED", (board, types, limits) -> DLXPolyominoSolver.solve(board, types, DLXPolyominoSolver.Engine.LINKED, limits));
+        configurations.put("ARRAY", (board, types, limits) -> DLXPolyominoSolver.solve(board, types, DLXPolyominoSolver.Engine.ARRAY, limits));
+        configurations.put("RECURSIVE", PolyominoSolver::solve);
+        for (int seed = 1; seed <= seededVariants; seed++) {
+            final long s = seed;
+            configurations.put("ARRAY#" + seed, (board, types, limits) -> DLXPolyominoSolver.solve(board, types, limits, s));
+        }
+        return configurations;
+    }
+
+    public boolean solve(int[][] board, List<boolean[][]> polyominoTypes) {
+        return solve(board, polyominoTypes, null) == SolveResult.SOLVED;
+    }
+
+    /**
+     * Race all the configurations within the time and node budget given by limits, each configuration gets the whole budget.
+     * The board is filled with the solution of the winner. A configuration that fails is out of the race, like one out of
+     * budget; the failure is thrown only when all the configurations fail.
+     */
+    public SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, SolveLimits limits) {
+        final SolveLimits own = limits == null ? null : new SolveLimits(limits.timeoutMillis, limits.maxNodes, null);
+        final CompletionService<Outcome> race = new ExecutorCompletionService<>(executor);
+        final List<Future<Outcome>> futures = new ArrayList<>(configurations.size());
+        for (Map.Entry<String, Configuration> entry: configurations.entrySet())
+            futures.add(race.submit(() -> {
+                int[][] copy = new int[board.length][];
+                for (int r = 0; r < board.length; r++)
+                    copy[r] = board[r].clone();
+                return new Outcome(entry.getKey(), entry.getValue().solve(copy, polyominoTypes, own), copy);
+            }));
+        RuntimeException failure = null;
+        int failed = 0;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                final Outcome outcome;
+                try {
+                    outcome = race.take().get();
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = new RuntimeException(e.getCause());
+                    else failure.addSuppressed(e.getCause());
+                    failed++;
+                    continue;
+                }
+                if (outcome.result == SolveResult.TIMED_OUT) continue;
+                wins.computeIfAbsent(outcome.name, k -> new LongAdder()).increment();
+                if (outcome.result == SolveResult.SOLVED)
+                    for (int r = 0; r < board.length; r++)
+                        System.arraycopy(outcome.board[r], 0, board[r], 0, board[r].length);
+                if (limits != null && limits.progressListener != null) limits.progressListener.accept(1);
+                return outcome.result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<Outcome> future: futures)
+                future.cancel(true);
+        }
+        if (failed == futures.size()) throw failure;
+        return SolveResult.TIMED_OUT;
+    }
+
+    /**
+     * Number of instances won by each configuration
+     */
+    public Map<String, Long> getWins() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (String name: configurations.keySet()) {
+            LongAdder n = wins.get(name);
+            result.put(name, n == null ? 0 : n.sum());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "Portfolio wins: " + getWins();
+    }
+}
@@ -0,0 +1,82 @@
+package solver;
+
+/**
+ * Restart schedule for randomized search: attempt i runs with a node limit taken from the Luby sequence
+ * (1, 1, 2, 1, 1, 2, 4, 1, ...) or from a geometric progression, times the unit, and each restart explores the
+ * branches in a different random order. Backtracking search times are heavy-tailed, restarting cuts the long runs
+ * that follow an unlucky early choice. The first attempt runs the deterministic search.
+ * Node limits are enforced every SearchBudget.CHECK_INTERVAL nodes, smaller units behave as that interval.
+ */
+public class RestartStrategy {
+    private final long unitNodes;
+    private final double factor;//0: Luby sequence
+
+    interface Attempt {
+        SolveResult solve(SolveLimits limits, long seed);//seed 0: deterministic search
+    }
+
+    private RestartStrategy(long unitNodes, double factor) {
+        if (unitNodes < 1) throw new IllegalArgumentException("unitNodes must be positive");
+        this.unitNodes = unitNodes;
+        this.factor = factor;
+    }
+
+    /**
+     * Node limits unitNodes * luby(i), the schedule proved within a log factor of optimal for unknown run time distributions
+     */
+    public static RestartStrategy luby(long unitNodes) {
+        return new RestartStrategy(unitNodes, 0);
+    }
+
+    /**
+     * Node limits firstNodes * factor^i
+     */
+    public static RestartStrategy geometric(long firstNodes, double factor) {
+        if (factor <= 1) throw new IllegalArgumentException("factor must be greater than 1");
+        return new RestartStrategy(firstNodes, factor);
+    }
+
+    long nodeLimit(int restart) {
+        final double limit = factor == 0 ? (double) unitNodes * lubyTerm(restart + 1) : unitNodes * Math.pow(factor, restart);
+        return limit >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE / 2 : (long) limit;
+    }
+
+    static long lubyTerm(long i) {//i-th term of the Luby sequence, from 1
+        while (true) {
+            int k = 1;
+            while ((1L << k) - 1 < i) k++;
+            if (i == (1L << k) - 1) return 1L << (k - 1);
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+
+    /**
+     * Run attempts until one solves the instance or proves it has no solution, or the limits are exhausted
+     */
+    SolveResult run(SolveLimits limits, Attempt attempt) {
+        final boolean timed = limits != null && limits.timeoutMillis != 0;
+        final long deadline = timed ? System.nanoTime() + limits.timeoutMillis * 1_000_000 : 0;
+        long nodesLeft = limits == null || limits.maxNodes == 0 ? Long.MAX_VALUE : limits.maxNodes;
+        for (int restart = 0; ; restart++) {
+            long timeout = 0;
+            if (timed) {
+                final long left = deadline - System.nanoTime();
+                if (left <= 0) return SolveResult.TIMED_OUT;
+                timeout = (left + 999_999) / 1_000_000;//rounded up, a timeout of 0 is no timeout
+            }
+            final long nodes = Math.min(nodeLimit(restart), nodesLeft);
+            final SolveResult result = attempt.solve(new SolveLimits(timeout, nodes, null, limits == null ? null : limits.tap), restart);
+            if (result != SolveResult.TIMED_OUT) {//the attempt finished within its node limit: the answer is final
+                if (limits != null && limits.progressListener != null) limits.progressListener.accept(1);
+                return result;
+            }
+            nodesLeft -= nodes;
+            if (nodesLeft <= 0 || Thread.currentThread().isInterrupted()) return SolveResult.TIMED_OUT;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return factor == 0 ? "luby(" + unitNodes + ")" : "geometric(" + unitNodes + ", " + factor + ")";
+    }
+}
@@ -0,0 +1,69 @@
+package solver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+/**
+ * Budget of a running search, checked by the engines every CHECK_INTERVAL nodes.
+ * Copies of a parallel search share the same budget, the progress is tracked by serial searches only.
+ */
+final class SearchBudget {
+    static final int CHECK_INTERVAL = 1024;//power of 2
+    static final int PROGRESS_DEPTH = 4;//branch positions tracked to estimate the progress
+
+    private final long deadline, maxNodes;
+    private final DoubleConsumer progressListener;
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean exhausted;
+
+    private final int[] index = new int[PROGRESS_DEPTH], count = new int[PROGRESS_DEPTH];
+    private long lastProgress;
+
+    SearchBudget(SolveLimits limits) {
+        long now = System.nanoTime();
+        deadline = limits.timeoutMillis > 0 ? now + limits.timeoutMillis * 1_000_000 : Long.MAX_VALUE;
+        maxNodes = limits.maxNodes > 0 ? limits.maxNodes : Long.MAX_VALUE;
+        progressListener = limits.progressListener;
+        lastProgress = now;
+    }
+
+    /**
+     * Account CHECK_INTERVAL more nodes, returns true when the budget is exhausted
+     */
+    boolean check() {
+        if (exhausted) return true;
+        long now = System.nanoTime();
+        if (nodes.addAndGet(CHECK_INTERVAL) >= maxNodes || now - deadline > 0 || Thread.currentThread().isInterrupted())
+            exhausted = true;
+        else if (progressListener != null && now - lastProgress > 100_000_000) {
+            lastProgress = now;
+            progressListener.accept(progress());
+        }
+        return exhausted;
+    }
+
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * The search starts branch i of n at the given depth
+     */
+    void branch(int depth, int i, int n) {
+        index[depth] = i;
+        count[depth] = n;
+        if (depth + 1 < PROGRESS_DEPTH) count[depth + 1] = 0;
+    }
+
+    private double progress() {
+        double progress = 0, weight = 1;
+        for (int depth = 0; depth < PROGRESS_DEPTH && count[depth] > 0; depth++) {
+            weight /= count[depth];
+            progress += index[depth] * weight;
+        }
+        return progress;
+    }
+
+    void done() {
+        if (progressListener != null && !exhausted) progressListener.accept(1);
+    }
+}
@@ -0,0 +1,185 @@
+package solver;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+/**
+ * Position of a long search saved to a file, so that the search survives a restart of the JVM and can be paused and resumed.
+ * The position is the stack of the choices made from the root down to the next node to search, with the number of solutions
+ * found before it: a search given the checkpoint of an earlier run of the same instance replays the stack and goes on from
+ * that node, even in the middle of an enumeration. The engines save the position at most every interval, when they stop
+ * (out of budget, interrupted or paused) and when the search is finished; a finished search is not searched again.
+ *
+ * The file is written to a temporary file moved over the previous one, so a crash while saving leaves the previous position.
+ * It records the instance it belongs to, resuming a different instance throws IllegalArgumentException; the choices are
+ * numbered as by this version of the solvers. A checkpoint serves one search at a time.
+ */
+public final class SearchCheckpoint {
+    private static final int MAGIC = 0x43484b50;//CHKP
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final long intervalNanos;
+    private volatile boolean pauseRequested;
+
+    // state of the last position loaded or saved
+    private String instance;
+    private long solutions;
+    private boolean finished, paused;
+    private long nextSave;
+
+    /**
+     * Checkpoint in file, saved at most every intervalMillis while searching
+     */
+    public SearchCheckpoint(Path file, long intervalMillis) {
+        this.file = file;
+        intervalNanos = intervalMillis * 1_000_000;
+    }
+
+    /**
+     * Ask the running search to save its position and stop at its next check, a solve then returns TIMED_OUT.
+     * May be called from any thread.
+     */
+    public void pause() {
+        pauseRequested = true;
+    }
+
+    /**
+     * The last search stopped on pause()
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * The saved search is finished: searching the same instance again returns its outcome without searching
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Solutions found up to the saved position, all the solutions of a finished enumeration
+     */
+    public synchronized long getSolutions() {
+        return solutions;
+    }
+
+    public synchronized boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Delete the saved position, the next search starts from the root
+     */
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(file);
+        solutions = 0;
+        finished = false;
+    }
+
+    /**
+     * Start the search of instance: the saved stack of choices, empty without saved position
+     */
+    synchronized int[] resume(String instance) {
+        this.instance = instance;
+        pauseRequested = false;
+        paused = false;
+        nextSave = System.nanoTime() + intervalNanos;
+        solutions = 0;
+        finished = false;
+        if (!Files.exists(file)) return new int[0];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a search checkpoint");
+            if (in.readInt() != VERSION) throw new IOException(file + " was saved by another version of the solver");
+            final char[] saved = new char[in.readInt()];
+            for (int i = 0; i < saved.length; i++)
+                saved[i] = in.readChar();
+            if (!instance.equals(new String(saved))) throw new IllegalArgumentException(file + " is the checkpoint of another search");
+            final long found = in.readLong();
+            final boolean done = in.readBoolean();
+            final int[] stack = new int[in.readInt()];
+            for (int i = 0; i < stack.length; i++)
+                stack[i] = in.readInt();
+            solutions = found;
+            finished = done;
+            return stack;
+        } catch (EOFException e) {
+            throw new UncheckedIOException(new IOException(file + " is truncated", e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checked by the engines every SearchBudget.CHECK_INTERVAL nodes: the position must be saved
+     */
+    boolean isDue() {
+        return pauseRequested || System.nanoTime() - nextSave >= 0;
+    }
+
+    /**
+     * Save the position before the node reached by the first depth choices of stack; returns true when the search
+     * must stop there, on pause()
+     */
+    synchronized boolean save(int[] stack, int depth, long solutions, boolean finished) {
+        final ByteBuffer buffer = ByteBuffer.allocate(4 * 4 + 2 * instance.length() + 8 + 1 + 4 * depth);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(instance.length());
+        for (int i = 0; i < instance.length(); i++)
+            buffer.putChar(instance.charAt(i));
+        buffer.putLong(solutions).put((byte) (finished ? 1 : 0)).putInt(depth);
+        for (int i = 0; i < depth; i++)
+            buffer.putInt(stack[i]);
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temporary.toFile())) {//not interruptible, unlike a FileChannel: the position is saved when interrupted
+                out.write(buffer.array());
+                out.getFD().sync();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.solutions = solutions;
+        this.finished = finished;
+        nextSave = System.nanoTime() + intervalNanos;
+        if (!pauseRequested || finished) return false;
+        pauseRequested = false;
+        paused = true;
+        return true;
+    }
+
+    /**
+     * Instance searched by engine: board size and pre-filled cells, and the pieces in the order given, each as the shape
+     * it was given in, which orders its orientations
+     */
+    static String instance(String engine, int[][] board, Piece[] pieces, PieceCounts counts) {
+        final StringBuilder key = new StringBuilder(engine).append(' ').append(board.length).append('x').append(board[0].length).append(' ');
+        for (int[] row: board)
+            for (int cell: row)
+                key.append(cell != 0 ? '#' : '.');
+        for (Piece piece: pieces) {
+            final boolean[][] shape = piece.orientations[0].shape;
+            key.append(' ').append(shape.length).append('x').append(shape[0].length).append(':');
+            for (boolean[] row: shape)
+                for (boolean cell: row)
+                    key.append(cell ? '1' : '0');
+        }
+        if (counts != null)
+            for (int i = 0; i < counts.size(); i++)
+                key.append(' ').append(counts.min[i]).append("..").append(counts.max[i]);
+        return key.toString();
+    }
+
+    /**
+     * The saved stack does not fit the instance, e.g. saved by another version of the solver
+     */
+    IllegalArgumentException mismatch() {
+        return new IllegalArgumentException(file + " does not match the search");
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SearchCheckpoint " + file + (finished ? ", finished, " : ", ") + solutions + " solutions";
+    }
+}
@@ -0,0 +1,182 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Live view of a running search: the solver thread appends every placement it makes and takes back to a ring buffer,
+ * without locking or waiting, and a viewer samples the board at its own pace, e.g. at a fixed frame rate.
+ * The intermediate moves between two samples are never drawn. When the viewer falls behind by more than the capacity
+ * of the ring, the events in between are lost: the viewer asks for a resync and the solver publishes a snapshot of its
+ * current placements at its next move, or when the search ends. A tap serves one solve at a time, given in SolveLimits: the LINKED and ARRAY
+ * engines and PolyominoSolver feed it, the parallel searches and the portfolio ignore it, as does PolyominoSolver when its
+ * orientations times cells exceed the int range of a placement.
+ */
+public final class SearchTap {
+    private static final int REMOVE = -1;
+
+    /**
+     * Cells of the placements reported by a solver, as indexes row * cols + column
+     */
+    interface Placements {
+        int cells(int placement, int[] out);//returns the number of cells, written to out if it is large enough
+    }
+
+    private static final class Snapshot {
+        final long position;//events before the snapshot
+        final int[] placements;
+        final Placements decoder;
+        final int rows, cols;
+        Snapshot(long position, int[] placements, Placements decoder, int rows, int cols) {
+            this.position = position; this.placements = placements; this.decoder = decoder; this.rows = rows; this.cols = cols;
+        }
+    }
+
+    private final int[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();//events published
+    private volatile Snapshot snapshot;
+    private volatile boolean resync;
+
+    // solver side
+    private long written;
+    private int[] stack = new int[64];
+    private int top;
+    private Placements decoder;
+    private int rows, cols;
+
+    // viewer side
+    private Snapshot applied;
+    private boolean stale;//waiting for a snapshot
+    private long read;
+    private int[][] board;
+    private int[] placed = new int[64];
+    private int depth;
+    private int[] cells = new int[16];
+    private long resyncs;
+
+    /**
+     * Tap holding up to capacity events, rounded up to a power of 2, between two samples
+     */
+    public SearchTap(int capacity) {
+        final int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        ring = new int[n];
+        mask = n - 1;
+    }
+
+    // solver side
+
+    /**
+     * A new search of a rows x cols board starts with no placement
+     */
+    void start(int rows, int cols, Placements decoder) {
+        this.rows = rows;
+        this.cols = cols;
+        this.decoder = decoder;
+        top = 0;
+        resync = false;
+        snapshot = new Snapshot(written, new int[0], decoder, rows, cols);
+    }
+
+    void place(int placement) {
+        if (resync) publishSnapshot();
+        if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+        stack[top++] = placement;
+        append(placement);
+    }
+
+    void remove() {
+        if (resync) publishSnapshot();
+        top--;
+        append(REMOVE);
+    }
+
+    /**
+     * The search is over: the viewer gets the final placements even if it is waiting for a resync
+     */
+    void finish() {
+        publishSnapshot();
+    }
+
+    private void append(int event) {
+        ring[(int) written & mask] = event;
+        head.lazySet(++written);//the event is written before the viewer can see the new head
+    }
+
+    private void publishSnapshot() {
+        resync = false;
+        snapshot = new Snapshot(written, Arrays.copyOf(stack, top), decoder, rows, cols);
+    }
+
+    // viewer side
+
+    /**
+     * Board of the current placements, each piece labelled by its depth from 1, null before the search starts.
+     * The board is updated in place by the next sample.
+     */
+    public synchronized int[][] sample() {
+        final Snapshot s = snapshot;
+        if (s == null) return null;
+        if (s != applied) restore(s);
+        else if (stale) return board;
+        final long h = head.get();
+        if (h - read > ring.length) {
+            requestResync();
+            return board;
+        }
+        for (long i = read; i < h; i++) {
+            final int event = ring[(int) i & mask];
+            if (event == REMOVE) {
+                if (depth > 0) fill(placed[--depth], 0);
+            } else push(event);
+        }
+        if (head.get() - read > ring.length) requestResync();//the solver wrapped around the events just read
+        else read = h;
+        return board;
+    }
+
+    /**
+     * Number of times the viewer fell behind and waited for a snapshot
+     */
+    public synchronized long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * Number of placements and removals made by the solver
+     */
+    public long getEvents() {
+        return head.get();
+    }
+
+    private void requestResync() {
+        stale = true;
+        resyncs++;
+        resync = true;
+    }
+
+    private void restore(Snapshot s) {
+        if (board == null || board.length != s.rows || board[0].length != s.cols) board = new int[s.rows][s.cols];
+        else for (int[] row: board) Arrays.fill(row, 0);
+        applied = s;
+        stale = false;
+        depth = 0;
+        for (int placement: s.placements)
+            push(placement);
+        read = s.position;
+    }
+
+    private void push(int placement) {
+        if (depth == placed.length) placed = Arrays.copyOf(placed, depth * 2);
+        placed[depth++] = placement;
+        fill(placement, depth);
+    }
+
+    private void fill(int placement, int label) {
+        int n;
+        while ((n = applied.decoder.cells(placement, cells)) > cells.length)
+            cells = new int[n];
+        final int c = applied.cols;
+        for (int i = 0; i < n; i++)
+            board[cells[i] / c][cells[i] % c] = label;
+    }
+}
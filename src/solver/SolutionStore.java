@@ -0,0 +1,356 @@
+package solver;
+
+import java.io.*;
+import java.lang.invoke.VarHandle;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+/**
+ * Persistent cache of solved instances in a memory-mapped file. Instances equal up to a rotation or reflection of the board
+ * (e.g. 6x10 and 10x6 with the same pieces) share one entry: the key is the board mask transformed to its smallest
+ * orientation, with the piece set as sorted canonical forms, and a hit is mapped back to the orientation of the caller.
+ * The value is the tiling of the canonical board as one label per cell, or no solution.
+ *
+ * File layout: a header, an open addressing table of slots (hash, record offset, record sequence number) and a data area
+ * used as a ring: records are appended and the oldest ones overwritten when the data area is full, which bounds the file
+ * size. A slot is stale when the record at its offset has a different sequence number.
+ *
+ * Readers take no lock: writes are bracketed by a version counter in the header (odd while writing) and readers retry when
+ * the version changed under them. Writers are serialized in the process by the monitor and across processes by a file lock.
+ */
+public final class SolutionStore implements Closeable {
+    private static final int MAGIC = 0x504f4c59;//POLY
+    private static final int HEADER = 64;
+    private static final int H_VERSION = 4, H_DATA = 8, H_SLOTS = 12, H_WRITE = 16, H_SEQ = 20;
+    private static final int SLOT = 16;
+    private static final int MAX_PROBES = 32;
+    private static final int MAX_READ_ATTEMPTS = 100000;
+    private static final byte SOLVED = 1, NO_SOLUTION = 0;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int dataCapacity, slots, dataStart;
+    private long hits, misses;
+
+    private SolutionStore(FileChannel channel, MappedByteBuffer map) {
+        this.channel = channel;
+        this.map = map;
+        dataCapacity = map.getInt(H_DATA);
+        slots = map.getInt(H_SLOTS);
+        dataStart = HEADER + slots * SLOT;
+    }
+
+    /**
+     * Open the store in file, creating it with a data area of dataBytes if missing; an existing store keeps its own size
+     */
+    public static SolutionStore open(Path file, int dataBytes) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock = null;
+        try {
+            lock = channel.lock();
+            if (channel.size() == 0) {
+                int slots = Integer.highestOneBit(Math.max(64, dataBytes / 64));//about one slot per 64 bytes of data
+                long size = HEADER + (long) slots * SLOT + dataBytes;
+                if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("store too large");
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                map.putInt(H_DATA, dataBytes);
+                map.putInt(H_SLOTS, slots);
+                map.putInt(H_SEQ, 1);
+                map.putInt(0, MAGIC);
+                map.force();
+                return new SolutionStore(channel, map);
+            }
+            if (channel.size() < HEADER) throw new IOException(file + " is not a solution store");
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (map.getInt(0) != MAGIC || HEADER + (long) map.getInt(H_SLOTS) * SLOT + map.getInt(H_DATA) != channel.size())
+                throw new IOException(file + " is not a solution store");
+            int version = map.getInt(H_VERSION);
+            if (version % 2 != 0) map.putInt(H_VERSION, version + 1);//a writer died while writing: its record is not referenced by any slot
+            return new SolutionStore(channel, map);
+        } catch (IOException | RuntimeException e) {
+            channel.close();//releases the lock
+            throw e;
+        } finally {
+            if (lock != null && lock.isValid()) lock.release();
+        }
+    }
+
+    /**
+     * Look up the instance: on SOLVED the board is filled with the cached tiling as a solver would do,
+     * NO_SOLUTION if the instance is known to have no solution, null if not cached
+     */
+    public SolveResult get(int[][] board, List<boolean[][]> polyominoTypes) {
+        final Instance instance = new Instance(board, polyominoTypes);
+        final byte[] value = find(instance.key, instance.hash);
+        synchronized (this) {
+            if (value == null) { misses++; return null; }
+            hits++;
+        }
+        if (value[0] == NO_SOLUTION) return SolveResult.NO_SOLUTION;
+        instance.restore(board, value);
+        return SolveResult.SOLVED;
+    }
+
+    /**
+     * Store the result of an instance: mask is the board before solving, solution the solved board or null if there is no solution
+     */
+    public void put(int[][] mask, List<boolean[][]> polyominoTypes, int[][] solution) throws IOException {
+        final Instance instance = new Instance(mask, polyominoTypes);
+        write(instance.key, instance.hash, instance.encode(mask, solution));
+    }
+
+    /**
+     * Solver run by solve() on the instances missing from the store, e.g. one of the engines
+     */
+    public interface Solver {
+        SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, SolveLimits limits);
+    }
+
+    /**
+     * Solve through the store: a cached instance is answered from the store, otherwise solver is run and its result stored,
+     * unless it timed out
+     */
+    public SolveResult solve(int[][] board, List<boolean[][]> polyominoTypes, SolveLimits limits, Solver solver) throws IOException {
+        SolveResult result = get(board, polyominoTypes);
+        if (result != null) return result;
+        final int[][] mask = new int[board.length][];
+        for (int r = 0; r < board.length; r++)
+            mask[r] = board[r].clone();
+        result = solver.solve(board, polyominoTypes, limits);
+        if (result != SolveResult.TIMED_OUT) put(mask, polyominoTypes, result == SolveResult.SOLVED ? board : null);
+        return result;
+    }
+
+    private byte[] find(byte[] key, long hash) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int version = map.getInt(H_VERSION);
+            VarHandle.acquireFence();
+            byte[] value = version % 2 == 0 ? probe(key, hash) : null;
+            VarHandle.acquireFence();
+            if (version % 2 == 0 && map.getInt(H_VERSION) == version) return value;
+            Thread.onSpinWait();
+        }
+        return null;//a writer holds the store for too long, answer as a miss
+    }
+
+    private byte[] probe(byte[] key, long hash) {
+        final int home = (int) (hash & (slots - 1));
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int slot = HEADER + ((home + i) & (slots - 1)) * SLOT;
+            int seq = map.getInt(slot + 12);
+            if (seq == 0) return null;
+            if (map.getLong(slot) == hash) {
+                byte[] value = read(map.getInt(slot + 8), seq, key);
+                if (value != null) return value;
+            }
+        }
+        return null;
+    }
+
+    private boolean live(int offset, int seq) {
+        return offset >= 0 && offset <= dataCapacity - 12 && map.getInt(dataStart + offset + 4) == seq;
+    }
+
+    /**
+     * Value of the record at offset if it is still the record seq and holds key, null otherwise
+     */
+    private byte[] read(int offset, int seq, byte[] key) {
+        if (!live(offset, seq)) return null;
+        final int at = dataStart + offset;
+        final int length = map.getInt(at), keyLength = map.getInt(at + 8);
+        if (length < 12 + key.length || length > dataCapacity - offset || keyLength != key.length) return null;
+        final byte[] stored = new byte[keyLength];
+        map.get(at + 12, stored);
+        if (!Arrays.equals(stored, key)) return null;
+        final byte[] value = new byte[length - 12 - keyLength];
+        map.get(at + 12 + keyLength, value);
+        return value;
+    }
+
+    private synchronized void write(byte[] key, long hash, byte[] value) throws IOException {
+        final int length = 12 + key.length + value.length;
+        if (length > dataCapacity) return;
+        final FileLock lock = channel.lock();
+        try {
+            final int version = map.getInt(H_VERSION);
+            map.putInt(H_VERSION, version + 1);
+            VarHandle.releaseFence();
+
+            int offset = map.getInt(H_WRITE);
+            if (offset + length > dataCapacity) offset = 0;//the ring wraps, records never straddle the end
+            final int seq = map.getInt(H_SEQ);
+            final int at = dataStart + offset;
+            map.putInt(at, length);
+            map.putInt(at + 4, seq);
+            map.putInt(at + 8, key.length);
+            map.put(at + 12, key);
+            map.put(at + 12 + key.length, value);
+
+            final int home = (int) (hash & (slots - 1));
+            int target = HEADER + home * SLOT;//evict the home slot when all the probed slots are live
+            for (int i = 0; i < MAX_PROBES; i++) {
+                int slot = HEADER + ((home + i) & (slots - 1)) * SLOT;
+                int slotSeq = map.getInt(slot + 12);
+                if (slotSeq == 0 || map.getLong(slot) == hash && read(map.getInt(slot + 8), slotSeq, key) != null
+                        || !live(map.getInt(slot + 8), slotSeq)) {
+                    target = slot;
+                    break;
+                }
+            }
+            map.putLong(target, hash);
+            map.putInt(target + 8, offset);
+            map.putInt(target + 12, seq);
+            map.putInt(H_WRITE, offset + length);
+            map.putInt(H_SEQ, seq == Integer.MAX_VALUE ? 1 : seq + 1);
+
+            VarHandle.releaseFence();
+            map.putInt(H_VERSION, version + 2);
+        } finally {
+            lock.release();
+        }
+    }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SolutionStore: " + dataCapacity + " bytes, " + hits + " hits, " + misses + " misses";
+    }
+
+    /**
+     * Instance in canonical form: the board transformed by the symmetry giving the smallest mask, the pieces as sorted canonical forms
+     */
+    private static final class Instance {
+        final int rows, cols;//of the caller board
+        final int[] map;//caller cell -> canonical cell
+        final int canonicalCols;
+        final byte[] key;
+        final long hash;
+
+        Instance(int[][] board, List<boolean[][]> polyominoTypes) {
+            rows = board.length;
+            cols = board[0].length;
+            int[] best = null;
+            int bestCols = 0;
+            byte[] bestMask = null;
+            for (int t = 0; t < 8; t++) {
+                int[] m = transform(t, rows, cols);
+                int tCols = (t & 1) == 0 ? cols : rows;
+                byte[] mask = new byte[4 + (rows * cols + 7) / 8];
+                int tRows = rows * cols / tCols;
+                mask[0] = (byte) (tRows >> 8); mask[1] = (byte) tRows; mask[2] = (byte) (tCols >> 8); mask[3] = (byte) tCols;
+                for (int r = 0; r < rows; r++)
+                    for (int c = 0; c < cols; c++)
+                        if (board[r][c] != 0) {
+                            int k = m[r * cols + c];
+                            mask[4 + k / 8] |= (byte) (0x80 >>> (k % 8));
+                        }
+                if (bestMask == null || Arrays.compareUnsigned(mask, bestMask) < 0) {
+                    best = m; bestCols = tCols; bestMask = mask;
+                }
+            }
+            map = best;
+            canonicalCols = bestCols;
+
+            final TreeSet<String> pieces = new TreeSet<>();
+            for (boolean[][] polyomino: polyominoTypes) {
+                String canonical = null;
+                boolean[][] shape = polyomino;
+                for (int t = 0; t < 8; t++) {
+                    String s = shapeKey(shape);
+                    if (canonical == null || s.compareTo(canonical) < 0) canonical = s;
+                    shape = t == 3 ? AbstractPolyominoSolver.flipShape(shape) : AbstractPolyominoSolver.rotateShape(shape);
+                }
+                pieces.add(canonical);
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.writeBytes(bestMask);
+            for (String piece: pieces)
+                out.writeBytes(piece.getBytes(StandardCharsets.ISO_8859_1));
+            key = out.toByteArray();
+            long h = 0xcbf29ce484222325L;//FNV-1a
+            for (byte b: key) {
+                h ^= b & 0xff;
+                h *= 0x100000001b3L;
+            }
+            hash = h;
+        }
+
+        private static String shapeKey(boolean[][] shape) {//height, width and cells as characters
+            final StringBuilder sb = new StringBuilder().append((char) shape.length).append((char) shape[0].length);
+            for (boolean[] row: shape)
+                for (boolean cell: row)
+                    sb.append(cell ? '#' : '.');
+            return sb.toString();
+        }
+
+        /**
+         * Cell index map of symmetry t: t & 3 clockwise rotations, t >= 4 flip the columns first
+         */
+        private static int[] transform(int t, int rows, int cols) {
+            final int[] m = new int[rows * cols];
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++) {
+                    int rr = r, cc = t >= 4 ? cols - 1 - c : c, h = rows, w = cols;
+                    for (int k = 0; k < (t & 3); k++) {//rotate clockwise
+                        int nr = cc, nc = h - 1 - rr;
+                        rr = nr; cc = nc;
+                        int tmp = h; h = w; w = tmp;
+                    }
+                    m[r * cols + c] = rr * w + cc;
+                }
+            return m;
+        }
+
+        /**
+         * Status byte, label width in bytes (1 to 4, big-endian), then the label of every canonical cell: 0 for pre-filled cells,
+         * pieces numbered from 1 in order of first appearance in the canonical board
+         */
+        byte[] encode(int[][] mask, int[][] solution) {
+            if (solution == null) return new byte[] {NO_SOLUTION};
+            final int n = rows * cols;
+            final int[] pieceAt = new int[n];//canonical cell -> caller piece value, 0 if pre-filled
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++)
+                    if (mask[r][c] == 0) pieceAt[map[r * cols + c]] = solution[r][c];
+            final Map<Integer, Integer> labels = new HashMap<>();
+            final int[] label = new int[n];
+            for (int k = 0; k < n; k++)
+                if (pieceAt[k] != 0) label[k] = labels.computeIfAbsent(pieceAt[k], v -> labels.size() + 1);
+            final int width = labels.size() < 1 << 8 ? 1 : labels.size() < 1 << 16 ? 2 : labels.size() < 1 << 24 ? 3 : 4;
+            final byte[] value = new byte[2 + n * width];
+            value[0] = SOLVED;
+            value[1] = (byte) width;
+            for (int k = 0; k < n; k++)
+                for (int b = 0; b < width; b++)//big-endian
+                    value[2 + k * width + b] = (byte) (label[k] >>> 8 * (width - 1 - b));
+            return value;
+        }
+
+        void restore(int[][] board, byte[] value) {
+            int order = 1;
+            for (int[] row: board)
+                for (int cell: row)
+                    if (cell >= order) order = cell + 1;
+            final int width = value[1];
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++) {
+                    int k = map[r * cols + c];
+                    int label = 0;
+                    for (int b = 0; b < width; b++)
+                        label = label << 8 | value[2 + k * width + b] & 0xff;
+                    if (label != 0) board[r][c] = order + label - 1;
+                }
+        }
+    }
+}
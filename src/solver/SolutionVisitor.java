@@ -0,0 +1,9 @@
+package solver;
+
+/**
+ * Callback receiving the solutions of an enumeration, return false to stop the enumeration
+ */
+@FunctionalInterface
+public interface SolutionVisitor {
+    boolean visit(int[][] board);
+}
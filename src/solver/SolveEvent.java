@@ -0,0 +1,38 @@
+package solver;
+
+import jdk.jfr.*;
+/**
+ * JFR event committed at the end of a solve, statistics are collected automatically while the event is enabled in a recording
+ */
+@Name("solver.Solve")
+@Label("Polyomino Solve")
+@Category("Polyomino")
+@Description("Search statistics of a polyomino tiling solve")
+@StackTrace(false)
+class SolveEvent extends Event {
+    @Label("Engine") String engine;
+    @Label("Rows") int rows;
+    @Label("Columns") int cols;
+    @Label("Solved") boolean solved;
+    @Label("Nodes") long nodes;
+    @Label("Link Updates") long linkUpdates;
+    @Label("Backtracks") long backtracks;
+    @Label("Max Depth") int maxDepth;
+    @Label("Setup Time") @Timespan(Timespan.NANOSECONDS) long setupTime;
+    @Label("Search Time") @Timespan(Timespan.NANOSECONDS) long searchTime;
+
+    void commit(String engine, int[][] board, boolean solved, SolverStats stats) {
+        if (!shouldCommit()) return;
+        this.engine = engine;
+        rows = board.length;
+        cols = board[0].length;
+        this.solved = solved;
+        nodes = stats.nodes;
+        linkUpdates = stats.linkUpdates;
+        backtracks = stats.backtracks;
+        maxDepth = stats.maxDepth;
+        setupTime = stats.setupNanos;
+        searchTime = stats.searchNanos;
+        commit();
+    }
+}
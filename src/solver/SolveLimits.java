@@ -0,0 +1,51 @@
+package solver;
+
+import java.util.function.DoubleConsumer;
+/**
+ * Time and node budget of a solve, 0 means no limit. The progress listener, if not null, is called from the solver thread
+ * about every 100 ms with an estimate between 0 and 1 of the fraction of the search tree explored.
+ * The search tap, if not null, receives every placement made and taken back by the search.
+ * The checkpoint, if not null, resumes the search from its saved position and saves it while searching: the ARRAY engine
+ * and PolyominoSolver use it, the other engines, the restarts and the portfolio ignore it.
+ */
+public class SolveLimits {
+    final long timeoutMillis, maxNodes;
+    final DoubleConsumer progressListener;
+    final SearchTap tap;
+    final SearchCheckpoint checkpoint;
+
+    public SolveLimits(long timeoutMillis, long maxNodes, DoubleConsumer progressListener) {
+        this(timeoutMillis, maxNodes, progressListener, null);
+    }
+
+    public SolveLimits(long timeoutMillis, long maxNodes, DoubleConsumer progressListener, SearchTap tap) {
+        this(timeoutMillis, maxNodes, progressListener, tap, null);
+    }
+
+    public SolveLimits(long timeoutMillis, long maxNodes, DoubleConsumer progressListener, SearchTap tap, SearchCheckpoint checkpoint) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxNodes = maxNodes;
+        this.progressListener = progressListener;
+        this.tap = tap;
+        this.checkpoint = checkpoint;
+    }
+
+    public static SolveLimits timeout(long timeoutMillis) {
+        return new SolveLimits(timeoutMillis, 0, null);
+    }
+
+    public static SolveLimits nodes(long maxNodes) {
+        return new SolveLimits(0, maxNodes, null);
+    }
+
+    /**
+     * No limits, the search is resumed from checkpoint and can be stopped by its pause()
+     */
+    public static SolveLimits checkpoint(SearchCheckpoint checkpoint) {
+        return new SolveLimits(0, 0, null, null, checkpoint);
+    }
+
+    public static SolveLimits progress(DoubleConsumer progressListener) {
+        return new SolveLimits(0, 0, progressListener);
+    }
+}
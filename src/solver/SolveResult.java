@@ -0,0 +1,6 @@
+package solver;
+
+/**
+ * Outcome of a bounded solve: TIMED_OUT when the time or node budget ran out, the thread was interrupted or the search was paused, before the search completed
+ */
+public enum SolveResult { SOLVED, NO_SOLUTION, TIMED_OUT }
@@ -0,0 +1,88 @@
+package solver;
+
+import java.util.Arrays;
+/**
+ * Search statistics, filled in by the solvers when an instance is passed to solve (collection is skipped when null).
+ * Link updates are counted by the DLX engines only, one per node unlinked or relinked by cover and uncover.
+ * Transposition hits are counted by PolyominoSolver only, one per board state found among the states without solution.
+ */
+public class SolverStats {
+    long nodes, linkUpdates, backtracks, transpositionHits;
+    int maxDepth;
+    long[] nodesPerDepth = new long[16], branchesPerDepth = new long[16];
+    long setupNanos, searchNanos;
+
+    void node(int depth, int branches) {
+        nodes++;
+        ensureDepth(depth);
+        if (depth > maxDepth) maxDepth = depth;
+        nodesPerDepth[depth]++;
+        branchesPerDepth[depth] += branches;
+    }
+
+    void branch(int depth) {//a branch explored from a node already counted at this depth
+        branchesPerDepth[depth]++;
+    }
+
+    private void ensureDepth(int depth) {
+        if (depth >= nodesPerDepth.length) {
+            nodesPerDepth = Arrays.copyOf(nodesPerDepth, Math.max(depth + 1, nodesPerDepth.length * 2));
+            branchesPerDepth = Arrays.copyOf(branchesPerDepth, nodesPerDepth.length);
+        }
+    }
+
+    synchronized void add(SolverStats other) {//merge the statistics collected by a parallel task
+        nodes += other.nodes;
+        linkUpdates += other.linkUpdates;
+        backtracks += other.backtracks;
+        transpositionHits += other.transpositionHits;
+        ensureDepth(other.maxDepth);
+        if (other.maxDepth > maxDepth) maxDepth = other.maxDepth;
+        for (int depth = 0; depth <= other.maxDepth; depth++) {
+            nodesPerDepth[depth] += other.nodesPerDepth[depth];
+            branchesPerDepth[depth] += other.branchesPerDepth[depth];
+        }
+    }
+
+    public long getNodes() { return nodes; }
+
+    public long getLinkUpdates() { return linkUpdates; }
+
+    public long getBacktracks() { return backtracks; }
+
+    public long getTranspositionHits() { return transpositionHits; }
+
+    public int getMaxDepth() { return maxDepth; }
+
+    public long getSetupNanos() { return setupNanos; }
+
+    public long getSearchNanos() { return searchNanos; }
+
+    /**
+     * Average number of branches explored from the nodes at the given depth
+     */
+    public double getBranchingFactor(int depth) {
+        if (depth >= nodesPerDepth.length || nodesPerDepth[depth] == 0) return 0;
+        return (double) branchesPerDepth[depth] / nodesPerDepth[depth];
+    }
+
+    public void reset() {
+        nodes = linkUpdates = backtracks = transpositionHits = setupNanos = searchNanos = 0;
+        maxDepth = 0;
+        Arrays.fill(nodesPerDepth, 0);
+        Arrays.fill(branchesPerDepth, 0);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("nodes: ").append(nodes).append(", link updates: ").append(linkUpdates)
+            .append(", backtracks: ").append(backtracks).append(", transposition hits: ").append(transpositionHits)
+            .append(", max depth: ").append(maxDepth)
+            .append(", setup: ").append(setupNanos / 1e6).append(" ms, search: ").append(searchNanos / 1e6).append(" ms")
+            .append("\nbranching factor per depth:");
+        for (int depth = 0; depth <= maxDepth && depth < nodesPerDepth.length; depth++)
+            sb.append(String.format(" %.2f", getBranchingFactor(depth)));
+        return sb.toString();
+    }
+}
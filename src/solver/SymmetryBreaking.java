@@ -0,0 +1,206 @@
+package solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+/**
+ * Enumerate one tiling for each class of tilings equivalent under the board symmetries.
+ *
+ * Let f be the first free cell: the search starts with the placement covering f and forbids on every cell mapped onto f
+ * by a symmetry any placement whose image is smaller than the placement chosen for f, so only the tilings having the
+ * smallest placement on f are explored. Ties are resolved on the leaves comparing the tiling with its images,
+ * the size of the stabilizer gives the number of raw tilings in the class.
+ */
+class SymmetryBreaking extends AbstractPolyominoSolver {
+    interface Leaf {
+        boolean accept(int[] placementIds);//returns true to stop
+    }
+
+    private final int[][] board;
+    private final int rows, cols;
+    private final PlacementTable placements;
+    private final boolean[] usable;
+    private final List<int[]> perms = new ArrayList<>();//placement permutation for each board symmetry, identity first
+    private final int[] preimage;//cell mapped onto f by each symmetry
+    private final int f;
+    private final List<List<Integer>> covering = new ArrayList<>();//placements covering each cell
+    private volatile boolean stopped;
+
+    SymmetryBreaking(int[][] board, PlacementTable placements) {
+        this.board = board;
+        this.placements = placements;
+        usable = placements.usable(board);
+        rows = board.length; cols = board[0].length;
+
+        int first = -1;
+        final boolean[][] mask = new boolean[rows][cols];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++) {
+                mask[r][c] = board[r][c] != 0;
+                if (!mask[r][c] && first < 0) first = r * cols + c;
+            }
+        f = first;
+        for (int i = 0; i < rows * cols; i++)
+            covering.add(new ArrayList<>());
+        final Map<List<Integer>, Integer> index = new HashMap<>();
+        for (int p = 0; p < placements.size(); p++) {
+            index.put(cells(p), p);
+            if (usable[p])
+                for (int cell: cells(p))
+                    covering.get(cell).add(p);
+        }
+
+        final List<Integer> preimages = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            boolean[][] image = mask;
+            for (int k = 0; k < t % 4; k++)
+                image = rotateShape(image);
+            if (t >= 4) image = flipShape(image);
+            if (!Arrays.deepEquals(image, mask)) continue;
+
+            final int[] cellMap = cellMap(t % 4, t >= 4);
+            final int[] perm = new int[placements.size()];
+            boolean closed = true;
+            for (int p = 0; p < perm.length && closed; p++) {
+                final List<Integer> cells = new ArrayList<>();
+                for (int cell: cells(p))
+                    cells.add(cellMap[cell]);
+                Collections.sort(cells);
+                Integer q = index.get(cells);
+                if (q == null) closed = false;//the piece set is not closed under this symmetry
+                else perm[p] = q;
+            }
+            if (!closed || !isPermutation(perm)) continue;
+            perms.add(perm);
+            for (int x = 0; x < cellMap.length; x++)
+                if (cellMap[x] == f) preimages.add(x);
+        }
+        preimage = new int[preimages.size()];
+        for (int i = 0; i < preimage.length; i++)
+            preimage[i] = preimages.get(i);
+    }
+
+    private List<Integer> cells(int p) {
+        final List<Integer> cells = new ArrayList<>();
+        for (int k = placements.offsets[p]; k < placements.offsets[p + 1]; k++)
+            cells.add(placements.cells[k]);
+        return cells;
+    }
+
+    int symmetries() {
+        return perms.size();
+    }
+
+    /**
+     * Cell mapping of k rotations followed by an optional flip, consistent with rotateShape and flipShape
+     */
+    private int[] cellMap(int k, boolean flip) {
+        final int[] map = new int[rows * cols];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++) {
+                int i = r, j = c, h = rows, w = cols;
+                for (int n = 0; n < k; n++) {
+                    int ni = j, nj = h - 1 - i;
+                    i = ni; j = nj;
+                    int t = h; h = w; w = t;
+                }
+                if (flip) j = w - 1 - j;
+                map[r * cols + c] = i * cols + j;
+            }
+        return map;
+    }
+
+    private static boolean isPermutation(int[] perm) {
+        final boolean[] seen = new boolean[perm.length];
+        for (int p: perm) {
+            if (seen[p]) return false;
+            seen[p] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Enumerate the representative tilings, branches on the placements covering f are searched on the pool if not null.
+     * Returns {raw count, unique count}.
+     */
+    long[] enumerate(Leaf leaf, ForkJoinPool pool) {
+        if (f < 0) return new long[] {1, 1};//board already full
+        final List<Callable<long[]>> branches = new ArrayList<>();
+        for (int p0: covering.get(f))
+            branches.add(() -> branch(p0, leaf));
+        final long[] total = new long[2];
+        try {
+            if (pool == null) {
+                for (Callable<long[]> branch: branches) {
+                    long[] count = branch.call();
+                    total[0] += count[0]; total[1] += count[1];
+                }
+            } else {
+                for (Future<long[]> future: pool.invokeAll(branches)) {
+                    long[] count = future.get();
+                    total[0] += count[0]; total[1] += count[1];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return total;
+    }
+
+    private long[] branch(int p0, Leaf leaf) {
+        if (stopped) return new long[2];
+        for (int g = 1; g < perms.size(); g++)
+            if (preimage[g] == f && perms.get(g)[p0] < p0) return new long[2];
+
+        final boolean[] excluded = new boolean[placements.size()];
+        for (int g = 0; g < perms.size(); g++) {
+            final int[] perm = perms.get(g);
+            for (int p: covering.get(preimage[g]))
+                if (perm[p] < p0) excluded[p] = true;
+        }
+        final int[] offsets = placements.offsets, cells = placements.cells;
+        final boolean[] taken = new boolean[rows * cols];
+        for (int k = offsets[p0]; k < offsets[p0 + 1]; k++)
+            taken[cells[k]] = true;
+
+        final ArrayDLX solver = new ArrayDLX(rows * cols);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                if (board[r][c] != 0 || taken[r * cols + c])
+                    solver.coverColumn(r * cols + c);
+        for (int p = 0; p < placements.size(); p++) {
+            if (excluded[p] || !usable[p]) continue;
+            boolean free = true;
+            for (int k = offsets[p]; k < offsets[p + 1]; k++)
+                if (taken[cells[k]]) { free = false; break; }
+            if (free) solver.addRow(p, cells, offsets[p], offsets[p + 1]);
+        }
+
+        final long[] count = new long[2];
+        solver.enumerate((solution, depth) -> {
+            final int[] key = Arrays.copyOf(solution, depth + 1);
+            key[depth] = p0;
+            Arrays.sort(key);
+            int stabilizer = 1;
+            final int[] image = new int[key.length];
+            for (int g = 1; g < perms.size(); g++) {
+                final int[] perm = perms.get(g);
+                boolean coversF = false;
+                for (int i = 0; i < key.length; i++) {
+                    image[i] = perm[key[i]];
+                    if (image[i] == p0) coversF = true;
+                }
+                Arrays.sort(image);
+                int cmp = Arrays.compare(image, key);
+                if (cmp == 0) stabilizer++;
+                else if (cmp < 0 && coversF) return false;//an equivalent tiling smaller than this one is enumerated
+            }
+            count[0] += perms.size() / stabilizer;
+            count[1]++;
+            if (stopped || leaf != null && leaf.accept(key)) stopped = true;
+            return stopped;
+        });
+        return count;
+    }
+}
@@ -0,0 +1,21 @@
+package solver;
+
+/**
+ * Result of an enumeration with symmetry breaking: raw is the number of tilings, unique the number of tilings
+ * distinct up to the symmetries (rotations and reflections) of the board
+ */
+public class TilingCount {
+    public final long raw, unique;
+    public final int symmetries;
+
+    TilingCount(long raw, long unique, int symmetries) {
+        this.raw = raw;
+        this.unique = unique;
+        this.symmetries = symmetries;
+    }
+
+    @Override
+    public String toString() {
+        return raw + " tilings, " + unique + " unique up to " + symmetries + " board symmetries";
+    }
+}
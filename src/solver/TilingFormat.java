@@ -0,0 +1,132 @@
+package solver;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+/**
+ * Layout shared by TilingWriter and TilingReader.
+ *
+ * Header: magic, version, rows, cols, keyframe interval, number of orientations, number of solutions, data bytes,
+ * offset of the index, the pre-filled cells as one bit per cell, and the table of the distinct fixed orientations of the
+ * pieces (height, width and one bit per cell of the bounding box). The data and the index follow.
+ *
+ * The placements of a solution are sorted by anchor, the first cell of a placement in row order: the anchor of the next
+ * placement is always the first cell still empty, so only the orientation codes are written, each in a fixed number of bits.
+ * A solution starts with the number of placements it shares with the previous one plus one, Elias gamma coded,
+ * followed by the codes of its other placements, in a bit stream without padding. Every keyframe interval solutions the
+ * stream is aligned to a byte and the next solution shares nothing: the index holds the data offset of these keyframes.
+ */
+final class TilingFormat {
+    static final int MAGIC = 0x54494c45;//TILE
+    static final int VERSION = 1;
+    static final int H_SOLUTIONS = 24, H_DATA = 32, H_INDEX = 40, H_MASK = 48;
+
+    final int rows, cols, keyframe;
+    final boolean[] mask;//pre-filled cells
+    final List<boolean[][]> orientations;
+    final int[][] dr, dc;//cells of each orientation relative to its anchor
+    final int bits;//per orientation code
+    final int headerBytes;
+
+    TilingFormat(int rows, int cols, int keyframe, boolean[] mask, List<boolean[][]> orientations) {
+        this.rows = rows;
+        this.cols = cols;
+        this.keyframe = keyframe;
+        this.mask = mask;
+        final int n = orientations.size();
+        dr = new int[n][];
+        dc = new int[n][];
+        int bytes = H_MASK + (rows * cols + 7) / 8;
+        for (int k = 0; k < n; k++) {
+            final boolean[][] shape = orientations.get(k);
+            final Piece.Orientation o = new Piece.Orientation(shape);
+            dr[k] = new int[o.size];
+            dc[k] = new int[o.size];
+            for (int i = 0; i < o.size; i++) {
+                dr[k][i] = o.cells[i] / o.width;
+                dc[k][i] = o.cells[i] % o.width - o.first;
+            }
+            bytes += 4 + (shape.length * shape[0].length + 7) / 8;
+        }
+        bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+        headerBytes = bytes;
+        this.orientations = orientations;
+    }
+
+    int orientationCount() {
+        return dr.length;
+    }
+
+    /**
+     * Distinct fixed orientations of the pieces, in the order of the pieces
+     */
+    static List<boolean[][]> orientations(List<boolean[][]> polyominoTypes) {
+        final List<boolean[][]> orientations = new ArrayList<>();
+        for (Piece piece: Piece.compile(polyominoTypes))
+            for (Piece.Orientation o: piece.orientations)
+                if (!AbstractPolyominoSolver.containsShape(orientations, o.shape))
+                    orientations.add(o.shape);
+        return orientations;
+    }
+
+    void writeHeader(FileChannel channel, long solutions, long dataBytes, long index) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(keyframe).putInt(orientationCount());
+        header.putLong(solutions).putLong(dataBytes).putLong(index);
+        header.put(pack(mask));
+        for (boolean[][] shape: orientations) {
+            header.putShort((short) shape.length).putShort((short) shape[0].length);
+            final boolean[] cells = new boolean[shape.length * shape[0].length];
+            for (int r = 0; r < shape.length; r++)
+                for (int c = 0; c < shape[0].length; c++)
+                    cells[r * shape[0].length + c] = shape[r][c];
+            header.put(pack(cells));
+        }
+        header.flip();
+        while (header.hasRemaining())
+            channel.write(header, header.position());
+    }
+
+    /**
+     * Format of the header at the start of buffer, the counts are read by the caller
+     */
+    static TilingFormat readHeader(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt(0) != MAGIC) throw new IOException("not a tiling file");
+            if (buffer.getInt(4) != VERSION) throw new IOException("unsupported tiling file version " + buffer.getInt(4));
+            final int rows = buffer.getInt(8), cols = buffer.getInt(12), keyframe = buffer.getInt(16), n = buffer.getInt(20);
+            if (rows < 1 || cols < 1 || keyframe < 1 || n < 1) throw new IOException("corrupt tiling file header");
+            int p = H_MASK;
+            final boolean[] mask = unpack(buffer, p, rows * cols);
+            p += (rows * cols + 7) / 8;
+            final List<boolean[][]> orientations = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                final int h = buffer.getShort(p), w = buffer.getShort(p + 2);
+                final boolean[] cells = unpack(buffer, p + 4, h * w);
+                p += 4 + (h * w + 7) / 8;
+                final boolean[][] shape = new boolean[h][w];
+                for (int i = 0; i < h * w; i++)
+                    shape[i / w][i % w] = cells[i];
+                orientations.add(shape);
+            }
+            return new TilingFormat(rows, cols, keyframe, mask, orientations);
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("corrupt tiling file header", e);
+        }
+    }
+
+    private static byte[] pack(boolean[] bits) {
+        final byte[] bytes = new byte[(bits.length + 7) / 8];
+        for (int i = 0; i < bits.length; i++)
+            if (bits[i]) bytes[i >>> 3] |= (byte) (1 << (i & 7));
+        return bytes;
+    }
+
+    private static boolean[] unpack(ByteBuffer buffer, int offset, int n) {
+        final boolean[] bits = new boolean[n];
+        for (int i = 0; i < n; i++)
+            bits[i] = (buffer.get(offset + (i >>> 3)) & 1 << (i & 7)) != 0;
+        return bits;
+    }
+}
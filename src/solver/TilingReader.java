@@ -0,0 +1,208 @@
+package solver;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+/**
+ * Random access reader of a file written by TilingWriter, memory-mapped read only: a tiling is decoded from the keyframe
+ * before it, found in the index, and rebuilt as an int[][] board. Reading the tilings in order decodes each one once.
+ */
+public final class TilingReader implements Closeable {
+    private static final int WINDOW_BITS = 30;//files are mapped in windows of 1 GB
+
+    private final FileChannel channel;
+    private final TilingFormat format;
+    private final MappedByteBuffer[] windows;
+    private final long solutions, dataStart, indexStart;
+    private final int firstLabel;//1, or 2 when cells are pre-filled, as the solvers number the pieces
+
+    // decoder state: the last decoded solution
+    private long decoded = -1;
+    private long bitPosition;
+    private int[] codes = new int[16], anchors = new int[16];
+    private int count;
+    private final boolean[] covered;
+
+    private TilingReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        final long size = channel.size();
+        windows = new MappedByteBuffer[(int) ((size >>> WINDOW_BITS) + 1)];
+        for (int w = 0; w < windows.length; w++) {
+            final long start = (long) w << WINDOW_BITS;
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 1L << WINDOW_BITS));
+        }
+        format = TilingFormat.readHeader(windows[0]);
+        solutions = windows[0].getLong(TilingFormat.H_SOLUTIONS);
+        final long dataBytes = windows[0].getLong(TilingFormat.H_DATA);
+        indexStart = windows[0].getLong(TilingFormat.H_INDEX);
+        dataStart = format.headerBytes;
+        final long blocks = (solutions + format.keyframe - 1) / format.keyframe;
+        if (indexStart == 0) throw new IOException("incomplete tiling file: the writer was not closed");
+        if (solutions < 0 || indexStart != dataStart + dataBytes || indexStart + blocks * 8 != size)
+            throw new IOException("corrupt tiling file");
+        covered = new boolean[format.rows * format.cols];
+        boolean prefilled = false;
+        for (boolean cell: format.mask)
+            prefilled |= cell;
+        firstLabel = prefilled ? 2 : 1;
+    }
+
+    public static TilingReader open(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new TilingReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Number of tilings in the file
+     */
+    public long size() {
+        return solutions;
+    }
+
+    public int getRows() {
+        return format.rows;
+    }
+
+    public int getCols() {
+        return format.cols;
+    }
+
+    /**
+     * Tiling i as a new board: pre-filled cells hold 1, the pieces are numbered in row order of their first cell
+     * from 1, or from 2 on a board with pre-filled cells
+     */
+    public synchronized int[][] get(long i) {
+        if (i < 0 || i >= solutions) throw new IndexOutOfBoundsException("tiling " + i + " of " + solutions);
+        seek(i);
+        final int[][] board = new int[format.rows][format.cols];
+        fill(board);
+        return board;
+    }
+
+    /**
+     * Visit the tilings in order from tiling first, the board is refilled in place before each visit.
+     * Returns the number of visited tilings.
+     */
+    public synchronized long visit(long first, SolutionVisitor visitor) {
+        final int[][] board = new int[format.rows][format.cols];
+        long visited = 0;
+        for (long i = first; i < solutions; i++) {
+            seek(i);
+            fill(board);
+            visited++;
+            if (!visitor.visit(board)) break;
+        }
+        return visited;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Decode up to solution i, from the keyframe before it unless i follows the last decoded solution in the same block
+     */
+    private void seek(long i) {
+        if (decoded < 0 || i <= decoded || i / format.keyframe != decoded / format.keyframe) {
+            final long block = i / format.keyframe;
+            bitPosition = (dataStart + readLong(indexStart + block * 8)) * 8;
+            decoded = block * format.keyframe - 1;
+            count = 0;
+            Arrays.fill(covered, false);
+        }
+        while (decoded < i) {
+            decodeNext();
+            decoded++;
+        }
+    }
+
+    private void decodeNext() {
+        int zeros = 0;
+        while (readBits(1) == 0)
+            if (++zeros > 31) throw corrupt();
+        final int shared = (zeros == 0 ? 1 : 1 << zeros | readBits(zeros)) - 1;
+        if (shared > count) throw corrupt();
+        for (int p = count - 1; p >= shared; p--)
+            place(codes[p], anchors[p], false);
+        count = shared;
+        final int n = covered.length;
+        int anchor = shared == 0 ? 0 : anchors[shared - 1];
+        while (true) {
+            while (anchor < n && (covered[anchor] || format.mask[anchor]))
+                anchor++;
+            if (anchor == n) return;
+            final int code = readBits(format.bits);
+            if (code >= format.orientationCount()) throw corrupt();
+            place(code, anchor, true);
+            if (count == codes.length) {
+                codes = Arrays.copyOf(codes, count * 2);
+                anchors = Arrays.copyOf(anchors, count * 2);
+            }
+            codes[count] = code;
+            anchors[count++] = anchor;
+        }
+    }
+
+    /**
+     * Cover or uncover the cells of orientation code at anchor
+     */
+    private void place(int code, int anchor, boolean cover) {
+        final int cols = format.cols, r = anchor / cols, c = anchor % cols;
+        final int[] dr = format.dr[code], dc = format.dc[code];
+        for (int k = 0; k < dr.length; k++) {
+            final int i = r + dr[k], j = c + dc[k];
+            if (i >= format.rows || j < 0 || j >= cols || cover && (covered[i * cols + j] || format.mask[i * cols + j]))
+                throw corrupt();
+            covered[i * cols + j] = cover;
+        }
+    }
+
+    private void fill(int[][] board) {
+        final int cols = format.cols;
+        for (int cell = 0; cell < covered.length; cell++)
+            if (format.mask[cell]) board[cell / cols][cell % cols] = 1;
+        for (int p = 0; p < count; p++) {
+            final int r = anchors[p] / cols, c = anchors[p] % cols;
+            final int[] dr = format.dr[codes[p]], dc = format.dc[codes[p]];
+            for (int k = 0; k < dr.length; k++)
+                board[r + dr[k]][c + dc[k]] = firstLabel + p;
+        }
+    }
+
+    private int readBits(int n) {
+        int value = 0;
+        for (int k = 0; k < n; ) {
+            final long bytePosition = bitPosition >>> 3;
+            if (bytePosition >= indexStart) throw corrupt();
+            final int offset = (int) (bitPosition & 7), take = Math.min(n - k, 8 - offset);
+            final int b = readByte(bytePosition) >>> offset & (1 << take) - 1;
+            value |= b << k;
+            k += take;
+            bitPosition += take;
+        }
+        return value;
+    }
+
+    private int readByte(long position) {
+        return windows[(int) (position >>> WINDOW_BITS)].get((int) (position & (1L << WINDOW_BITS) - 1)) & 0xff;
+    }
+
+    private long readLong(long position) {
+        long value = 0;
+        for (int k = 0; k < 8; k++)
+            value = value << 8 | readByte(position + k);
+        return value;
+    }
+
+    private static IllegalStateException corrupt() {
+        return new IllegalStateException("corrupt tiling file");
+    }
+}
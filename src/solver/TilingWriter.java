@@ -0,0 +1,278 @@
+package solver;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * Append-only writer of enumerated tilings in the compact format of TilingFormat, e.g. 8 bytes per tiling of
+ * the 6x10 board with the 12 pentominoes. The writer is the visitor of an enumeration:
+ * the solutions are encoded on the search thread into chunks of memory, full chunks are handed over to a writer thread
+ * that copies them into the memory-mapped file, so the search never waits for the disk.
+ * The file is complete when the writer is closed: the index and the number of solutions are written last.
+ */
+public final class TilingWriter implements SolutionVisitor, Closeable {
+    private static final int DEFAULT_KEYFRAME = 256;
+    private static final int CHUNK = 1 << 16;
+    private static final int WINDOW = 1 << 24;//bytes of the file mapped at a time
+
+    private final TilingFormat format;
+    private final FileChannel channel;
+    private final Map<String, Integer> codes = new HashMap<>();//cells of an orientation relative to its anchor -> code
+    private final Thread writer;
+    private final ConcurrentLinkedQueue<byte[]> chunks = new ConcurrentLinkedQueue<>();
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    // search thread
+    private final int[] stamps, stack, cells;
+    private final char[] key;
+    private int stamp;
+    private int[] previous = new int[16], current = new int[16];
+    private int previousCount;
+    private long solutions;
+    private long[] index = new long[16];
+    private byte[] chunk = new byte[CHUNK];
+    private int chunkBytes;
+    private long emitted;//bytes handed over or in the current chunk
+    private long bitBuffer;
+    private int bitCount;
+
+    private TilingWriter(FileChannel channel, TilingFormat format) {
+        this.channel = channel;
+        this.format = format;
+        final int n = format.rows * format.cols;
+        stamps = new int[n];
+        stack = new int[n];
+        cells = new int[n];
+        key = new char[2 * n];
+        for (int k = 0; k < format.orientationCount(); k++) {
+            final int[] offsets = new int[format.dr[k].length];
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] = format.dr[k][i] * format.cols + format.dc[k][i];
+            codes.putIfAbsent(key(offsets, offsets.length), k);
+        }
+        writer = new Thread(this::drain, "tiling writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Create file for the tilings of board, holding its pre-filled cells, with the given piece types
+     */
+    public static TilingWriter create(Path file, int[][] board, List<boolean[][]> polyominoTypes) throws IOException {
+        return create(file, board, polyominoTypes, DEFAULT_KEYFRAME);
+    }
+
+    /**
+     * Create file with a keyframe every keyframe solutions: the reader decodes at most that many solutions
+     * to reach any of them, the other solutions store only the placements not shared with the previous one
+     */
+    public static TilingWriter create(Path file, int[][] board, List<boolean[][]> polyominoTypes, int keyframe) throws IOException {
+        if (keyframe < 1) throw new IllegalArgumentException("keyframe interval must be positive");
+        final int rows = board.length, cols = board[0].length;
+        final boolean[] mask = new boolean[rows * cols];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                mask[r * cols + c] = board[r][c] != 0;
+        final TilingFormat format = new TilingFormat(rows, cols, keyframe, mask, TilingFormat.orientations(polyominoTypes));
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            format.writeHeader(channel, 0, 0, 0);//incomplete until closed
+            return new TilingWriter(channel, format);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append a tiling of the board, each piece labelled with a distinct value as the solvers do.
+     * Returns false, to stop the enumeration, if the writer failed or is closed.
+     */
+    @Override
+    public synchronized boolean visit(int[][] board) {
+        if (closing || failure != null) return false;
+        final int cols = format.cols, n = format.rows * cols;
+        stamp++;
+        int count = 0;
+        for (int anchor = 0; anchor < n; anchor++) {
+            if (format.mask[anchor] || stamps[anchor] == stamp) continue;
+            final int size = collect(board, anchor);//the anchor is the first cell of its piece in row order
+            final Integer code = codes.get(key(cells, size));
+            if (code == null) throw new IllegalArgumentException("piece at " + anchor / cols + "," + anchor % cols + " is not one of the piece types");
+            if (count == current.length) current = Arrays.copyOf(current, count * 2);
+            current[count++] = code;
+        }
+
+        int shared = 0;
+        if (solutions % format.keyframe == 0) {
+            alignToByte();
+            final long block = solutions / format.keyframe;
+            if (block == index.length) index = Arrays.copyOf(index, index.length * 2);
+            index[(int) block] = emitted;
+        } else
+            while (shared < count && shared < previousCount && current[shared] == previous[shared])
+                shared++;
+        writeGamma(shared + 1);
+        for (int i = shared; i < count; i++)
+            writeBits(current[i], format.bits);
+        final int[] t = previous;
+        previous = current;
+        current = t;
+        previousCount = count;
+        solutions++;
+        return true;
+    }
+
+    /**
+     * Number of tilings written
+     */
+    public synchronized long size() {
+        return solutions;
+    }
+
+    /**
+     * Bytes written, without the header and the index
+     */
+    public synchronized long dataBytes() {
+        return emitted + (bitCount + 7) / 8;
+    }
+
+    /**
+     * Flush the last solutions, write the index and complete the header
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closing) return;
+        alignToByte();
+        if (chunkBytes > 0) chunks.add(Arrays.copyOf(chunk, chunkBytes));
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (writer.isAlive()) throw new InterruptedIOException("interrupted while closing the tiling writer");
+            if (failure != null) throw failure;
+            final long start = format.headerBytes, indexAt = start + emitted;
+            final long blocks = (solutions + format.keyframe - 1) / format.keyframe;
+            final ByteBuffer out = ByteBuffer.allocate((int) blocks * 8);
+            for (int b = 0; b < blocks; b++)
+                out.putLong(index[b]);
+            out.flip();
+            for (long p = indexAt; out.hasRemaining(); )
+                p += channel.write(out, p);
+            channel.truncate(indexAt + blocks * 8);
+            format.writeHeader(channel, solutions, emitted, indexAt);
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Cells of the piece of the anchor, as offsets from the anchor in increasing order, in cells; returns their number
+     */
+    private int collect(int[][] board, int anchor) {
+        final int cols = format.cols, label = board[anchor / cols][anchor % cols];
+        int top = 0, size = 0;
+        stack[top++] = anchor;
+        stamps[anchor] = stamp;
+        while (top > 0) {
+            final int cell = stack[--top], r = cell / cols, c = cell % cols;
+            cells[size++] = cell - anchor;
+            if (r > 0 && stamps[cell - cols] != stamp && board[r - 1][c] == label) { stamps[cell - cols] = stamp; stack[top++] = cell - cols; }
+            if (r < format.rows - 1 && stamps[cell + cols] != stamp && board[r + 1][c] == label) { stamps[cell + cols] = stamp; stack[top++] = cell + cols; }
+            if (c > 0 && stamps[cell - 1] != stamp && board[r][c - 1] == label) { stamps[cell - 1] = stamp; stack[top++] = cell - 1; }
+            if (c < cols - 1 && stamps[cell + 1] != stamp && board[r][c + 1] == label) { stamps[cell + 1] = stamp; stack[top++] = cell + 1; }
+        }
+        Arrays.sort(cells, 0, size);
+        return size;
+    }
+
+    private String key(int[] offsets, int size) {
+        for (int i = 0; i < size; i++) {
+            key[2 * i] = (char) (offsets[i] >>> 16);
+            key[2 * i + 1] = (char) offsets[i];
+        }
+        return new String(key, 0, 2 * size);
+    }
+
+    /**
+     * Value v >= 1 as floor(log2 v) zero bits followed by v from its highest bit, lowest bits first
+     */
+    private void writeGamma(int v) {
+        final int length = 31 - Integer.numberOfLeadingZeros(v);
+        writeBits(0, length);
+        writeBits(1, 1);
+        writeBits(v, length);
+    }
+
+    private void writeBits(int value, int n) {
+        bitBuffer |= ((long) value & ((1L << n) - 1)) << bitCount;
+        bitCount += n;
+        while (bitCount >= 8) {
+            writeByte((byte) bitBuffer);
+            bitBuffer >>>= 8;
+            bitCount -= 8;
+        }
+    }
+
+    private void alignToByte() {
+        if (bitCount > 0) writeBits(0, 8 - bitCount);
+    }
+
+    private void writeByte(byte b) {
+        chunk[chunkBytes++] = b;
+        emitted++;
+        if (chunkBytes == CHUNK) {
+            chunks.add(chunk);
+            LockSupport.unpark(writer);
+            chunk = new byte[CHUNK];
+            chunkBytes = 0;
+        }
+    }
+
+    /**
+     * Writer thread: copy the chunks to the file through a sliding mapped window
+     */
+    private void drain() {
+        long position = format.headerBytes, windowStart = -1;
+        MappedByteBuffer window = null;
+        while (true) {
+            final boolean last = closing;
+            final byte[] next = chunks.poll();
+            if (next == null) {
+                if (last) {
+                    if (window != null) window.force();
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            if (failure != null) continue;//drop the data, the failure is reported by close
+            try {
+                for (int done = 0; done < next.length; ) {
+                    if (window == null || position >= windowStart + WINDOW) {
+                        windowStart = position;
+                        window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW);
+                    }
+                    final int n = (int) Math.min(next.length - done, windowStart + WINDOW - position);
+                    window.put((int) (position - windowStart), next, done, n);
+                    done += n;
+                    position += n;
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+        }
+    }
+}
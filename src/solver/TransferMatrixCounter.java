@@ -0,0 +1,242 @@
+package solver;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+/**
+ * Counting the tilings of long strips by transfer matrix (broken profile dynamic programming): the cells are scanned
+ * along the strip a row of the width at a time, and the state is the profile of the filled cells from the current cell on,
+ * one bit per cell. Every piece is placed covering the first empty cell, so every tiling is counted once, and the time is
+ * linear in the length of the strip. The profile spans as many rows as the tallest orientation: width x height must not
+ * exceed 63 cells. Piece types are unlimited, as in the exact covers counted by DLXPolyominoSolver.count.
+ */
+public final class TransferMatrixCounter {
+    private static final int PARALLEL_STATES = 1 << 12;//fewer states are expanded serially
+
+    private final int width, length;
+    private final long[][] placements;//masks of the orientations anchored at column y of the width, bit k is the k-th cell from the anchor
+    private final int[][] heights;
+    private final long modulus;//0: exact counts
+    private final ForkJoinPool pool;
+
+    /**
+     * Exact number of tilings of the empty rows x cols board
+     */
+    public static BigInteger count(int rows, int cols, List<boolean[][]> polyominoTypes) {
+        return count(rows, cols, polyominoTypes, null);
+    }
+
+    /**
+     * Exact number of tilings of the empty rows x cols board, the states are expanded in parallel on the pool if not null
+     */
+    public static BigInteger count(int rows, int cols, List<boolean[][]> polyominoTypes, ForkJoinPool pool) {
+        final States states = new TransferMatrixCounter(rows, cols, polyominoTypes, 0, pool).run();
+        final int i = states.find(0);
+        return i < 0 ? BigInteger.ZERO : states.exact[i];
+    }
+
+    /**
+     * Number of tilings of the empty rows x cols board modulo modulus, at most 2^62,
+     * the states are expanded in parallel on the pool if not null
+     */
+    public static long countModulo(int rows, int cols, List<boolean[][]> polyominoTypes, long modulus, ForkJoinPool pool) {
+        if (modulus < 1 || modulus > Long.MAX_VALUE / 2) throw new IllegalArgumentException("modulus must be in 1..2^62");
+        final States states = new TransferMatrixCounter(rows, cols, polyominoTypes, modulus, pool).run();
+        final int i = states.find(0);
+        return i < 0 ? 0 : states.counts[i];
+    }
+
+    private TransferMatrixCounter(int rows, int cols, List<boolean[][]> polyominoTypes, long modulus, ForkJoinPool pool) {
+        if (rows < 1 || cols < 1) throw new IllegalArgumentException("invalid board size");
+        this.modulus = modulus;
+        this.pool = pool;
+        final boolean transposed = cols > rows;//the strip is scanned across its narrow side
+        width = Math.min(rows, cols);
+        length = Math.max(rows, cols);
+
+        final List<boolean[][]> allOrientations = new ArrayList<>();
+        for (boolean[][] type: polyominoTypes)
+            for (boolean[][] shape: AbstractPolyominoSolver.getUniqueOrientations(type)) {
+                boolean[][] oriented = transposed ? transpose(shape) : shape;
+                if (!AbstractPolyominoSolver.containsShape(allOrientations, oriented))
+                    allOrientations.add(oriented);
+            }
+
+        final List<List<boolean[][]>> anchored = new ArrayList<>();
+        placements = new long[width][];
+        heights = new int[width][];
+        for (int y = 0; y < width; y++) {
+            final List<Long> masks = new ArrayList<>();
+            final List<Integer> h = new ArrayList<>();
+            for (boolean[][] shape: allOrientations) {
+                if (shape.length * width > 63) throw new IllegalArgumentException("strip too wide: the profile exceeds 63 cells");
+                int first = 0;
+                while (!shape[0][first]) first++;
+                if (y - first < 0 || y - first + shape[0].length > width) continue;
+                long mask = 0;
+                for (int dr = 0; dr < shape.length; dr++)
+                    for (int dc = 0; dc < shape[0].length; dc++)
+                        if (shape[dr][dc]) mask |= 1L << (dr * width + dc - first);
+                masks.add(mask);
+                h.add(shape.length);
+            }
+            placements[y] = masks.stream().mapToLong(Long::longValue).toArray();
+            heights[y] = h.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static boolean[][] transpose(boolean[][] shape) {
+        final boolean[][] t = new boolean[shape[0].length][shape.length];
+        for (int r = 0; r < shape.length; r++)
+            for (int c = 0; c < shape[0].length; c++)
+                t[c][r] = shape[r][c];
+        return t;
+    }
+
+    private States run() {
+        States from = new States(16, modulus), to = new States(16, modulus);
+        from.start();
+        for (int x = 0; x < length; x++)
+            for (int y = 0; y < width; y++) {
+                to.clear();
+                if (pool == null || from.size < PARALLEL_STATES) step(from, 0, from.keys.length, to, x, y);
+                else {
+                    final int parts = pool.getParallelism(), chunk = from.keys.length / parts + 1;
+                    final List<ForkJoinTask<States>> tasks = new ArrayList<>(parts);
+                    for (int lo = 0; lo < from.keys.length; lo += chunk) {
+                        final int start = lo, end = Math.min(lo + chunk, from.keys.length), r = x, c = y;
+                        final States source = from;
+                        tasks.add(pool.submit(() -> {
+                            States part = new States(source.size / parts * 2, modulus);
+                            step(source, start, end, part, r, c);
+                            return part;
+                        }));
+                    }
+                    for (ForkJoinTask<States> task: tasks)
+                        to.addAll(task.join());
+                }
+                final States t = from;
+                from = to;
+                to = t;
+            }
+        return from;
+    }
+
+    /**
+     * Expand the states in slots [start, end) of from over the cell at row x, column y of the strip
+     */
+    private void step(States from, int start, int end, States to, int x, int y) {
+        final long[] masks = placements[y];
+        final int[] h = heights[y];
+        final int rowsLeft = length - x;
+        for (int i = start; i < end; i++) {
+            final long key = from.keys[i];
+            if (key == States.EMPTY) continue;
+            if ((key & 1) != 0) {//already filled
+                to.add(key >>> 1, from, i);
+                continue;
+            }
+            for (int k = 0; k < masks.length; k++)
+                if (h[k] <= rowsLeft && (key & masks[k]) == 0)
+                    to.add((key | masks[k]) >>> 1, from, i);
+        }
+    }
+
+    /**
+     * Open addressing map from profile to count, exact or modular
+     */
+    private static final class States {
+        static final long EMPTY = -1L;//profiles are shifted right after every cell, bit 63 is never set
+
+        final long modulus;
+        long[] keys;
+        long[] counts;
+        BigInteger[] exact;
+        int size;
+
+        States(int capacity, long modulus) {
+            this.modulus = modulus;
+            allocate(Integer.highestOneBit(Math.max(capacity, 8)) * 2);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            if (modulus == 0) exact = new BigInteger[capacity];
+            else counts = new long[capacity];
+            size = 0;
+        }
+
+        void start() {//the empty profile, counted once
+            final int i = slot(0);
+            if (modulus == 0) exact[i] = BigInteger.ONE;
+            else counts[i] = 1 % modulus;
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            if (modulus == 0) Arrays.fill(exact, null);
+            else Arrays.fill(counts, 0);
+            size = 0;
+        }
+
+        int find(long key) {
+            final int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask)
+                if (keys[i] == key) return i;
+            return -1;
+        }
+
+        private int slot(long key) {
+            if (size * 2 >= keys.length) grow();
+            final int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != EMPTY && keys[i] != key)
+                i = (i + 1) & mask;
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                size++;
+            }
+            return i;
+        }
+
+        /**
+         * Add the count of slot i of from to key
+         */
+        void add(long key, States from, int i) {
+            final int j = slot(key);
+            if (modulus == 0) exact[j] = exact[j] == null ? from.exact[i] : exact[j].add(from.exact[i]);
+            else {
+                final long sum = counts[j] + from.counts[i];
+                counts[j] = sum >= modulus ? sum - modulus : sum;
+            }
+        }
+
+        void addAll(States other) {
+            for (int i = 0; i < other.keys.length; i++)
+                if (other.keys[i] != EMPTY) add(other.keys[i], other, i);
+        }
+
+        private void grow() {
+            final long[] oldKeys = keys, oldCounts = counts;
+            final BigInteger[] oldExact = exact;
+            allocate(keys.length * 2);
+            final int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldKeys[i] != EMPTY) {
+                    int j = hash(oldKeys[i]) & mask;
+                    while (keys[j] != EMPTY)
+                        j = (j + 1) & mask;
+                    keys[j] = oldKeys[i];
+                    if (modulus == 0) exact[j] = oldExact[i];
+                    else counts[j] = oldCounts[i];
+                    size++;
+                }
+        }
+
+        private static int hash(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package solver;
+
+import java.util.SplittableRandom;
+/**
+ * Fixed size table of board states known to have no solution, keyed by the Zobrist hash of the filled cells: the hash
+ * of a state is the xor of a random key per filled cell, updated by the same xor when a piece is placed or removed.
+ * Each bucket holds two entries: the first keeps the state nearest to the root, whose refutation took the most work,
+ * the second is always replaced. An entry holds 56 bits of the hash and the depth, a false hit needs two states
+ * agreeing on 63 bits of hash.
+ * The table starts small and doubles, dropping its entries, each time the states added fill half of it, up to a size set
+ * by the board: most searches refute few states and should not pay for a table sized for the hardest ones.
+ */
+final class TranspositionTable {
+    static final int MAX_BYTES = 8 << 20;
+    private static final int MIN_ENTRIES = 1 << 10;
+    private static final int ENTRIES_PER_CELL = 256;
+    private static final long DEPTH_MASK = 0xFF;
+
+    final long[] cellKeys;
+    private final int maxEntries;
+    private long[] entries;
+    private int mask;//bucket index bits
+    private int added;//since the last growth
+
+    TranspositionTable(int cells) {
+        cellKeys = new long[cells];
+        final SplittableRandom random = new SplittableRandom(cells);
+        for (int i = 0; i < cells; i++)
+            cellKeys[i] = random.nextLong();
+        maxEntries = Math.min(MAX_BYTES / Long.BYTES, Math.max(MIN_ENTRIES, Integer.highestOneBit(cells) * ENTRIES_PER_CELL));
+        entries = new long[MIN_ENTRIES];
+        mask = (MIN_ENTRIES - 1) & ~1;
+    }
+
+    boolean contains(long hash) {
+        final int i = (int) hash & mask;
+        final long check = check(hash);
+        return (entries[i] & ~DEPTH_MASK) == check || (entries[i + 1] & ~DEPTH_MASK) == check;
+    }
+
+    /**
+     * Record a state without solution found at the given search depth
+     */
+    void add(long hash, int depth) {
+        if (++added > entries.length / 2 && entries.length < maxEntries) {//the stored hash bits cannot be moved to a larger table
+            entries = new long[entries.length * 2];
+            mask = (entries.length - 1) & ~1;
+            added = 0;
+        }
+        final int i = (int) hash & mask;
+        final long entry = check(hash) | Math.min(depth + 1, DEPTH_MASK);//never 0, the empty entry
+        if (entries[i] == 0 || (entries[i] & DEPTH_MASK) >= (entry & DEPTH_MASK)) entries[i] = entry;
+        else entries[i + 1] = entry;
+    }
+
+    private static long check(long hash) {
+        final long check = hash & ~DEPTH_MASK;
+        return check == 0 ? DEPTH_MASK + 1 : check;
+    }
+}